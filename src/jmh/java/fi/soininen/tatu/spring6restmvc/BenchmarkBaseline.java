@@ -0,0 +1,102 @@
+package fi.soininen.tatu.spring6restmvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares a JMH JSON result against the committed baseline and exits non-zero when any benchmark got slower
+ * by more than {@link #SCORE_TOLERANCE} beyond its error, or allocates more than {@link #ALLOC_TOLERANCE_BYTES}
+ * extra bytes per operation. Benchmarks missing from the baseline are listed but never fail the check.
+ */
+public class BenchmarkBaseline {
+
+    static final double SCORE_TOLERANCE = 0.10;
+    static final double ALLOC_TOLERANCE_BYTES = 16;
+
+    static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BenchmarkBaseline <baseline.json> <result.json>");
+            System.exit(2);
+        }
+
+        Map<String, JsonNode> baseline = read(Path.of(args[0]));
+        Map<String, JsonNode> current = read(Path.of(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            JsonNode after = entry.getValue();
+
+            if (before == null) {
+                System.out.printf("NEW   %s: %s%n", entry.getKey(), describe(after));
+                continue;
+            }
+
+            boolean slower = scoreRegressed(before.path("primaryMetric"), after.path("primaryMetric"));
+            boolean allocates = allocRegressed(before, after);
+            if (slower || allocates) {
+                regressions++;
+            }
+
+            System.out.printf("%s %s: %s -> %s%n", slower || allocates ? "WORSE" : "OK   ", entry.getKey(),
+                    describe(before), describe(after));
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed against %s%n", regressions, args[0]);
+            System.exit(1);
+        }
+    }
+
+    static boolean scoreRegressed(JsonNode before, JsonNode after) {
+        double limit = before.path("score").asDouble() * (1 + SCORE_TOLERANCE) + errorOf(before) + errorOf(after);
+        return after.path("score").asDouble() > limit;
+    }
+
+    static boolean allocRegressed(JsonNode before, JsonNode after) {
+        JsonNode allocBefore = before.path("secondaryMetrics").path(ALLOC_METRIC);
+        JsonNode allocAfter = after.path("secondaryMetrics").path(ALLOC_METRIC);
+        if (allocBefore.isMissingNode() || allocAfter.isMissingNode()) {
+            return false;
+        }
+        return allocAfter.path("score").asDouble() > allocBefore.path("score").asDouble() + ALLOC_TOLERANCE_BYTES;
+    }
+
+    // JMH writes "NaN" when a single iteration leaves no error estimate
+    private static double errorOf(JsonNode metric) {
+        double error = metric.path("scoreError").asDouble();
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    private static String describe(JsonNode result) {
+        JsonNode primary = result.path("primaryMetric");
+        JsonNode alloc = result.path("secondaryMetrics").path(ALLOC_METRIC);
+        String text = String.format("%.3f %s", primary.path("score").asDouble(), primary.path("scoreUnit").asText());
+        if (!alloc.isMissingNode()) {
+            text += String.format(", %.0f B/op", alloc.path("score").asDouble());
+        }
+        return text;
+    }
+
+    private static Map<String, JsonNode> read(Path file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(Files.readAllBytes(file))) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+            for (Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields(); params.hasNext(); ) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+}
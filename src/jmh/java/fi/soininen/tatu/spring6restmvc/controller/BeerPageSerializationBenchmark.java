@@ -0,0 +1,77 @@
+package fi.soininen.tatu.spring6restmvc.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fi.soininen.tatu.spring6restmvc.model.BeerDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the {@code Page<BeerDto>} body of {@code GET /api/v1/beer} with an object mapper configured the way
+ * Spring Boot configures the application's, at the default and the maximum page size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeerPageSerializationBenchmark {
+
+    @Param({"25", "1000"})
+    int pageSize;
+
+    ObjectMapper objectMapper;
+    Page<BeerDto> page;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        BeerStyle[] styles = BeerStyle.values();
+        LocalDateTime now = LocalDateTime.now();
+
+        List<BeerDto> beers = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            beers.add(BeerDto.builder()
+                    .id(UUID.randomUUID())
+                    .version(1)
+                    .beerName("Beer " + i)
+                    .beerStyle(styles[i % styles.length])
+                    .upc(String.valueOf(100_000 + i))
+                    .quantityOnHand(i)
+                    .price(new BigDecimal("9.99"))
+                    .createdDate(now)
+                    .updatedDate(now)
+                    .build());
+        }
+
+        page = new PageImpl<>(beers, PageRequest.of(0, pageSize, Sort.by(Sort.Order.asc("beerName"))), 10_000);
+    }
+
+    @Benchmark
+    public byte[] writePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
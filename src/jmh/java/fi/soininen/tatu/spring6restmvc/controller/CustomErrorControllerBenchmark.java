@@ -0,0 +1,79 @@
+package fi.soininen.tatu.spring6restmvc.controller;
+
+import fi.soininen.tatu.spring6restmvc.model.BeerDto;
+import jakarta.persistence.RollbackException;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the error bodies for an empty beer, which fails every constraint on {@link BeerDto}: once from a bean
+ * validation failure on the request body and once from a constraint violation raised at flush time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomErrorControllerBenchmark {
+
+    CustomErrorController errorController;
+    ValidatorFactory validatorFactory;
+    MethodArgumentNotValidException bindException;
+    TransactionSystemException transactionException;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        errorController = new CustomErrorController();
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        BeerDto beer = BeerDto.builder().build();
+
+        BindingResult bindingResult = new BeanPropertyBindingResult(beer, "beerDto");
+        new SpringValidatorAdapter(validatorFactory.getValidator())
+                .validate(beer, bindingResult);
+        MethodParameter parameter = new MethodParameter(BeerController.class
+                .getDeclaredMethod("handlePost", BeerDto.class), 0);
+        bindException = new MethodArgumentNotValidException(parameter, bindingResult);
+
+        ConstraintViolationException violations = new ConstraintViolationException(
+                validatorFactory.getValidator().validate(beer));
+        transactionException = new TransactionSystemException("Could not commit JPA transaction",
+                new RollbackException("Error while committing the transaction", violations));
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public ResponseEntity handleBindErrors() {
+        return errorController.handleBindErrors(bindException);
+    }
+
+    @Benchmark
+    public ResponseEntity handleJPAViolations() {
+        return errorController.handleJPAViolations(transactionException);
+    }
+}
@@ -0,0 +1,67 @@
+package fi.soininen.tatu.spring6restmvc.mappers;
+
+import fi.soininen.tatu.spring6restmvc.entities.Beer;
+import fi.soininen.tatu.spring6restmvc.model.BeerDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps one beer each way through the generated {@link BeerMapper}, as every single-item request does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeerMapperBenchmark {
+
+    BeerMapper beerMapper;
+    Beer beer;
+    BeerDto beerDto;
+
+    @Setup
+    public void setup() {
+        beerMapper = Mappers.getMapper(BeerMapper.class);
+        LocalDateTime now = LocalDateTime.now();
+
+        beer = Beer.builder()
+                .id(UUID.randomUUID())
+                .version(3)
+                .beerName("Galaxy Cat")
+                .beerStyle(BeerStyle.PALE_ALE)
+                .upc("12356222")
+                .quantityOnHand(122)
+                .price(new BigDecimal("12.99"))
+                .createdDate(now)
+                .updatedDate(now)
+                .build();
+
+        beerDto = beerMapper.beerToBeerDto(beer);
+    }
+
+    @Benchmark
+    public BeerDto beerToBeerDto() {
+        return beerMapper.beerToBeerDto(beer);
+    }
+
+    @Benchmark
+    public Beer beerDtoToBeer() {
+        return beerMapper.beerDtoToBeer(beerDto);
+    }
+}
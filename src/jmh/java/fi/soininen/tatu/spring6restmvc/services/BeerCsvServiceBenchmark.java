@@ -0,0 +1,45 @@
+package fi.soininen.tatu.spring6restmvc.services;
+
+import fi.soininen.tatu.spring6restmvc.model.BeerCSVRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ResourceUtils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the bundled {@code csvdata/beers.csv} (2,409 rows) that bootstrap imports on startup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeerCsvServiceBenchmark {
+
+    BeerCsvService beerCsvService;
+    File csvFile;
+
+    @Setup
+    public void setup() throws FileNotFoundException {
+        beerCsvService = new BeerCsvServiceImpl();
+        csvFile = ResourceUtils.getFile("classpath:csvdata/beers.csv");
+    }
+
+    @Benchmark
+    public List<BeerCSVRecord> convertCSV() {
+        return beerCsvService.convertCSV(csvFile);
+    }
+}
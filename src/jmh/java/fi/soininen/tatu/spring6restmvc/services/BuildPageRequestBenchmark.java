@@ -0,0 +1,49 @@
+package fi.soininen.tatu.spring6restmvc.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BeerServiceJPA#buildPageRequest} runs on every page, slice and export request before any query.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BuildPageRequestBenchmark {
+
+    BeerServiceJPA beerService;
+
+    // Fields rather than constants so the JIT cannot fold the arguments away
+    Integer pageNumber = 3;
+    Integer pageSize = 50;
+
+    @Setup
+    public void setup() {
+        // buildPageRequest touches none of the collaborators
+        beerService = new BeerServiceJPA(null, null, null);
+    }
+
+    @Benchmark
+    public PageRequest defaults() {
+        return beerService.buildPageRequest(null, null);
+    }
+
+    @Benchmark
+    public PageRequest explicitPage() {
+        return beerService.buildPageRequest(pageNumber, pageSize);
+    }
+}
@@ -0,0 +1,237 @@
+package fi.soininen.tatu.spring6restmvc.bootstrap;
+
+import fi.soininen.tatu.spring6restmvc.entities.Beer;
+import fi.soininen.tatu.spring6restmvc.entities.DataImport;
+import fi.soininen.tatu.spring6restmvc.model.BeerCSVRecord;
+import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import fi.soininen.tatu.spring6restmvc.repositories.BeerRepository;
+import fi.soininen.tatu.spring6restmvc.repositories.DataImportRepository;
+import fi.soininen.tatu.spring6restmvc.services.BeerCsvService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Loads the beer catalog CSV. The file is read twice, streaming both times: once for its SHA-256, which skips the
+ * import when it matches the last recorded one, and once through {@link BeerCsvService#streamCSV} to import it.
+ * A parser thread reads and maps the rows into chunks of {@value #FLUSH_SIZE} beers while the calling thread inserts
+ * the previous chunks in flushed and cleared JDBC batches within one transaction. At most {@value #QUEUED_CHUNKS}
+ * chunks wait between the two, so heap use does not grow with the file.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BeerCsvImporter {
+
+    static final int FLUSH_SIZE = 500;
+
+    // Enough to keep the inserting thread busy while the parser fills the next chunk
+    static final int QUEUED_CHUNKS = 4;
+
+    private static final List<Beer> END_OF_FILE = List.of();
+
+    static final Map<String, BeerStyle> STYLES = Map.ofEntries(
+            Map.entry("American Pale Lager", BeerStyle.LAGER),
+            Map.entry("American Pale Ale (APA)", BeerStyle.ALE),
+            Map.entry("American Black Ale", BeerStyle.ALE),
+            Map.entry("Belgian Dark Ale", BeerStyle.ALE),
+            Map.entry("American Blonde Ale", BeerStyle.ALE),
+            Map.entry("American IPA", BeerStyle.IPA),
+            Map.entry("American Double / Imperial IPA", BeerStyle.IPA),
+            Map.entry("Belgian IPA", BeerStyle.IPA),
+            Map.entry("American Porter", BeerStyle.PORTER),
+            Map.entry("Oatmeal Stout", BeerStyle.STOUT),
+            Map.entry("American Stout", BeerStyle.STOUT),
+            Map.entry("Saison / Farmhouse Ale", BeerStyle.SAISON),
+            Map.entry("Fruit / Vegetable Beer", BeerStyle.WHEAT),
+            Map.entry("Winter Warmer", BeerStyle.WHEAT),
+            Map.entry("Berliner Weissbier", BeerStyle.WHEAT),
+            Map.entry("English Pale Ale", BeerStyle.PALE_ALE));
+
+    private final BeerRepository beerRepository;
+    private final DataImportRepository dataImportRepository;
+    private final BeerCsvService beerCsvService;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Imports {@code csv} unless it was already imported unchanged. A catalog holding more than the bootstrap seed
+     * beers without any recorded import predates the {@code data_import} table; the file is then recorded as
+     * imported instead. Rows that cannot be bound are logged and skipped. Returns the number of beers inserted.
+     */
+    public int importBeers(String name, Resource csv) throws IOException {
+        long start = System.currentTimeMillis();
+
+        String checksum = sha256(csv);
+        Optional<DataImport> lastImport = dataImportRepository.findById(name);
+
+        if (lastImport.map(DataImport::getChecksum).filter(checksum::equals).isPresent()) {
+            log.info("Skipping {}: unchanged since last import", name);
+            return 0;
+        }
+
+        if (lastImport.isEmpty() && beerRepository.count() > BootstrapData.SEED_BEERS) {
+            // Loaded before imports were recorded; adopt the current file rather than insert duplicates
+            log.info("Beer catalog already loaded, recording {} without importing", name);
+            record(name, checksum, 0);
+            return 0;
+        }
+
+        BlockingQueue<List<Beer>> chunks = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+        ExecutorService parser = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "beer-csv-parser"));
+        int imported;
+        try {
+            Future<?> parsing = parser.submit(() -> {
+                parse(name, csv, chunks);
+                return null;
+            });
+
+            imported = transactionTemplate.execute(status -> {
+                // Bootstrap rows are not hot; keep them out of the second-level cache
+                entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+
+                int count = 0;
+                for (List<Beer> chunk = take(chunks); chunk != END_OF_FILE; chunk = take(chunks)) {
+                    chunk.forEach(entityManager::persist);
+                    entityManager.flush();
+                    entityManager.clear();
+                    count += chunk.size();
+                }
+                // A failed parse also ends the queue; it must roll back what was inserted so far
+                awaitParsed(parsing);
+
+                record(name, checksum, count);
+                return count;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            // Interrupts a parser still blocked on a full queue after the insert failed
+            parser.shutdownNow();
+        }
+
+        log.info("Imported {} beers from {} in {} ms", imported, name, System.currentTimeMillis() - start);
+
+        return imported;
+    }
+
+    /**
+     * Runs on the parser thread. Always ends the queue with {@link #END_OF_FILE}, also when parsing fails, so the
+     * inserting thread never waits for a chunk that will not come.
+     */
+    private void parse(String name, Resource csv, BlockingQueue<List<Beer>> chunks)
+            throws IOException, InterruptedException {
+        try (Stream<BeerCSVRecord> records = beerCsvService.streamCSV(
+                new InputStreamReader(csv.getInputStream(), StandardCharsets.UTF_8),
+                e -> log.warn("Skipping line {} of {}: {}", e.getLineNumber(), name, e.getMessage()))) {
+
+            List<Beer> chunk = new ArrayList<>(FLUSH_SIZE);
+            for (Iterator<BeerCSVRecord> iterator = records.iterator(); iterator.hasNext(); ) {
+                chunk.add(toBeer(iterator.next()));
+
+                if (chunk.size() == FLUSH_SIZE) {
+                    chunks.put(chunk);
+                    chunk = new ArrayList<>(FLUSH_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                chunks.put(chunk);
+            }
+        } finally {
+            chunks.put(END_OF_FILE);
+        }
+    }
+
+    private static List<Beer> take(BlockingQueue<List<Beer>> chunks) {
+        try {
+            return chunks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for parsed beers", e);
+        }
+    }
+
+    private static void awaitParsed(Future<?> parsing) {
+        try {
+            parsing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the beer CSV parser", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw new UncheckedIOException(io);
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Parsing the beer CSV failed", e.getCause());
+        }
+    }
+
+    private static Beer toBeer(BeerCSVRecord record) {
+        return Beer.builder()
+                .beerName(StringUtils.abbreviate(record.getBeer(), 50))
+                .beerStyle(STYLES.getOrDefault(record.getStyle(), BeerStyle.PILSNER))
+                .price(BigDecimal.TEN)
+                .upc(String.valueOf(record.getRow()))
+                .quantityOnHand(record.getCount())
+                .build();
+    }
+
+    private void record(String name, String checksum, int rowCount) {
+        dataImportRepository.save(DataImport.builder()
+                .name(name)
+                .checksum(checksum)
+                .rowCount(rowCount)
+                .importedDate(LocalDateTime.now())
+                .build());
+    }
+
+    static String sha256(Resource csv) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        try (InputStream in = new DigestInputStream(csv.getInputStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -3,35 +3,33 @@ package fi.soininen.tatu.spring6restmvc.bootstrap;
 import fi.soininen.tatu.spring6restmvc.repositories.CustomerRepository;
 import fi.soininen.tatu.spring6restmvc.entities.Beer;
 import fi.soininen.tatu.spring6restmvc.entities.Customer;
-import fi.soininen.tatu.spring6restmvc.model.BeerCSVRecord;
+import fi.soininen.tatu.spring6restmvc.ids.TimeOrderedUuids;
 import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
 import fi.soininen.tatu.spring6restmvc.repositories.BeerRepository;
-import fi.soininen.tatu.spring6restmvc.services.BeerCsvService;
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.ResourceUtils;
 
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
-import java.util.List;
-import java.util.UUID;
 
 @Component
 @RequiredArgsConstructor
 public class BootstrapData implements CommandLineRunner {
 
+    static final String BEER_CSV = "csvdata/beers.csv";
+
+    // Beers loadBeerData() saves into an empty table
+    static final int SEED_BEERS = 3;
+
     private final BeerRepository beerRepository;
     private final CustomerRepository customerRepository;
 
-    private final BeerCsvService beerCsvService;
+    private final BeerCsvImporter beerCsvImporter;
 
-    @Transactional
     @Override
     public void run(String... args) throws Exception {
         loadBeerData();
@@ -81,35 +79,8 @@ public class BootstrapData implements CommandLineRunner {
 
     }
 
-    private void loadCsvData() throws FileNotFoundException {
-        if (beerRepository.count() < 10){
-            File file = ResourceUtils.getFile("classpath:csvdata/beers.csv");
-
-            List<BeerCSVRecord> recs = beerCsvService.convertCSV(file);
-
-            recs.forEach(beerCSVRecord -> {
-                BeerStyle beerStyle = switch (beerCSVRecord.getStyle()) {
-                    case "American Pale Lager" -> BeerStyle.LAGER;
-                    case "American Pale Ale (APA)", "American Black Ale", "Belgian Dark Ale", "American Blonde Ale" ->
-                            BeerStyle.ALE;
-                    case "American IPA", "American Double / Imperial IPA", "Belgian IPA" -> BeerStyle.IPA;
-                    case "American Porter" -> BeerStyle.PORTER;
-                    case "Oatmeal Stout", "American Stout" -> BeerStyle.STOUT;
-                    case "Saison / Farmhouse Ale" -> BeerStyle.SAISON;
-                    case "Fruit / Vegetable Beer", "Winter Warmer", "Berliner Weissbier" -> BeerStyle.WHEAT;
-                    case "English Pale Ale" -> BeerStyle.PALE_ALE;
-                    default -> BeerStyle.PILSNER;
-                };
-
-                beerRepository.save(Beer.builder()
-                        .beerName(StringUtils.abbreviate(beerCSVRecord.getBeer(), 50))
-                        .beerStyle(beerStyle)
-                        .price(BigDecimal.TEN)
-                        .upc(beerCSVRecord.getRow().toString())
-                        .quantityOnHand(beerCSVRecord.getCount())
-                        .build());
-            });
-        }
+    private void loadCsvData() throws IOException {
+        beerCsvImporter.importBeers(BEER_CSV, new ClassPathResource(BEER_CSV));
     }
 
     private void loadCustomerData() {
@@ -118,25 +89,22 @@ public class BootstrapData implements CommandLineRunner {
 
         if (customerRepository.count() == 0) {
             Customer customer1 = Customer.builder()
-                    .id(UUID.randomUUID())
+                    .id(TimeOrderedUuids.next())
                     .name("Customer 1")
-                    .version(1)
                     .createdDate(LocalDateTime.now())
                     .updatedDate(LocalDateTime.now())
                     .build();
 
             Customer customer2 = Customer.builder()
-                    .id(UUID.randomUUID())
+                    .id(TimeOrderedUuids.next())
                     .name("Customer 2")
-                    .version(1)
                     .createdDate(LocalDateTime.now())
                     .updatedDate(LocalDateTime.now())
                     .build();
 
             Customer customer3 = Customer.builder()
-                    .id(UUID.randomUUID())
+                    .id(TimeOrderedUuids.next())
                     .name("Customer 3")
-                    .version(1)
                     .createdDate(LocalDateTime.now())
                     .updatedDate(LocalDateTime.now())
                     .build();
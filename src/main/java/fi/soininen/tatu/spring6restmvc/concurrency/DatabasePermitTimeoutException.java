@@ -0,0 +1,13 @@
+package fi.soininen.tatu.spring6restmvc.concurrency;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * No database permit became free within the configured wait; the request should be retried later.
+ */
+public class DatabasePermitTimeoutException extends SQLTransientConnectionException {
+
+    public DatabasePermitTimeoutException(String reason) {
+        super(reason);
+    }
+}
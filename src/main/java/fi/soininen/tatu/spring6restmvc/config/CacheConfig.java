@@ -0,0 +1,13 @@
+package fi.soininen.tatu.spring6restmvc.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+@EnableCaching
+@Configuration
+public class CacheConfig {
+
+    // Total row counts per (beerName, beerStyle) filter; evicted on every beer write.
+    // Size and expiry of this and the Hibernate regions are set in application.conf
+    public static final String BEER_COUNT_CACHE = "beerCountCache";
+}
@@ -0,0 +1,77 @@
+package fi.soininen.tatu.spring6restmvc.config;
+
+import fi.soininen.tatu.spring6restmvc.concurrency.AdaptiveConcurrencyLimiter;
+import fi.soininen.tatu.spring6restmvc.concurrency.ConcurrencyLimitFilter;
+import fi.soininen.tatu.spring6restmvc.controller.BeerController;
+import fi.soininen.tatu.spring6restmvc.controller.BeerOrderController;
+import fi.soininen.tatu.spring6restmvc.controller.CustomerController;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.List;
+
+/**
+ * Adaptive load shedding for the beer, customer and order APIs; see {@link ConcurrencyLimitFilter}. Limits are
+ * published as {@code app.concurrency.limit}, {@code app.concurrency.in.flight} and
+ * {@code app.concurrency.rejected}, tagged with the endpoint class.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.concurrency-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public AdaptiveConcurrencyLimiter readConcurrencyLimiter(
+            @Value("${app.concurrency-limit.read.initial:40}") int initialLimit,
+            @Value("${app.concurrency-limit.read.min:4}") int minLimit,
+            @Value("${app.concurrency-limit.read.max:400}") int maxLimit) {
+        return new AdaptiveConcurrencyLimiter("read", initialLimit, minLimit, maxLimit);
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter writeConcurrencyLimiter(
+            @Value("${app.concurrency-limit.write.initial:20}") int initialLimit,
+            @Value("${app.concurrency-limit.write.min:2}") int minLimit,
+            @Value("${app.concurrency-limit.write.max:200}") int maxLimit) {
+        return new AdaptiveConcurrencyLimiter("write", initialLimit, minLimit, maxLimit);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            AdaptiveConcurrencyLimiter readConcurrencyLimiter, AdaptiveConcurrencyLimiter writeConcurrencyLimiter) {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+                new ConcurrencyLimitFilter(readConcurrencyLimiter, writeConcurrencyLimiter));
+        registration.addUrlPatterns(BeerController.BEER_PATH, BeerController.BEER_PATH + "/*",
+                CustomerController.CUSTOMER_PATH, CustomerController.CUSTOMER_PATH + "/*",
+                BeerOrderController.BEER_ORDER_PATH, BeerOrderController.BEER_ORDER_PATH + "/*");
+        // Ahead of Spring Security, so shedding happens before any authentication work
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    @Bean
+    public MeterBinder concurrencyLimitMetrics(List<AdaptiveConcurrencyLimiter> limiters) {
+        return registry -> limiters.forEach(limiter -> bind(limiter, registry));
+    }
+
+    private static void bind(AdaptiveConcurrencyLimiter limiter, MeterRegistry registry) {
+        Gauge.builder("app.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("class", limiter.getName())
+                .description("Current adaptive limit on concurrent requests")
+                .register(registry);
+        Gauge.builder("app.concurrency.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .tag("class", limiter.getName())
+                .register(registry);
+        FunctionCounter.builder("app.concurrency.rejected", limiter, AdaptiveConcurrencyLimiter::getRejected)
+                .tag("class", limiter.getName())
+                .description("Requests shed with 503 because the limit was reached")
+                .register(registry);
+    }
+}
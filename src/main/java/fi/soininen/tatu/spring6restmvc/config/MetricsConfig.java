@@ -0,0 +1,24 @@
+package fi.soininen.tatu.spring6restmvc.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Backs {@code @Timed} on the controllers ({@code app.controller}) and JPA services ({@code app.service}), tagged
+ * with class and method. Hikari pool gauges ({@code hikaricp.connections.*}) and Hibernate statistics
+ * ({@code hibernate.*}, including second-level cache hits and misses) are bound by Spring Boot; everything is
+ * scraped from {@code /actuator/prometheus}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    public static final String CONTROLLER_TIMER = "app.controller";
+    public static final String SERVICE_TIMER = "app.service";
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
@@ -0,0 +1,112 @@
+package fi.soininen.tatu.spring6restmvc.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import fi.soininen.tatu.spring6restmvc.routing.ReadWriteRoutingDataSource;
+import fi.soininen.tatu.spring6restmvc.routing.ReplicaLagMonitor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Read replicas, enabled by listing their JDBC URLs in {@code app.datasource.replica.urls}. The primary is still
+ * configured through {@code spring.datasource.*}; replicas share its driver and credentials and get read-only
+ * pools of {@code app.datasource.replica.maximum-pool-size}. Read-only transactions are routed by
+ * {@link ReadWriteRoutingDataSource}; a replica more than {@code app.datasource.replica.max-lag} behind the
+ * primary is skipped until it catches up.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "app.datasource.replica.urls")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            DataSourceProperties properties,
+            @Value("${app.datasource.replica.urls}") List<String> urls,
+            @Value("${app.datasource.replica.maximum-pool-size:10}") int maximumPoolSize,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        List<DataSource> replicas = IntStream.range(0, urls.size())
+                .mapToObj(i -> {
+                    HikariDataSource replica = properties.initializeDataSourceBuilder()
+                            .type(HikariDataSource.class)
+                            .url(urls.get(i))
+                            .build();
+                    replica.setPoolName("replica-" + i);
+                    replica.setMaximumPoolSize(maximumPoolSize);
+                    replica.setReadOnly(true);
+                    // Not beans, so Spring Boot does not bind their pool metrics; tagged pool=replica-N
+                    meterRegistry.ifAvailable(registry ->
+                            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+                    return (DataSource) replica;
+                })
+                .toList();
+
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicas);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                               ReadWriteRoutingDataSource readWriteRoutingDataSource,
+                                               @Value("${app.datasource.replica.max-lag:5s}") Duration maxLag) {
+        return new ReplicaLagMonitor(primaryDataSource, readWriteRoutingDataSource, maxLag, Clock.systemUTC());
+    }
+
+    // Hibernate would otherwise keep the first transaction's connection, and with it the routing decision,
+    // until the EntityManager closes at the end of the request
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public MeterBinder replicaLagMetrics(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return registry -> readWriteRoutingDataSource.getReplicas().forEach(replica -> {
+            TimeGauge.builder("app.datasource.replica.lag", replica,
+                            TimeUnit.MILLISECONDS, r -> r.getLag() == null ? Double.NaN : r.getLag().toMillis())
+                    .tag("replica", replica.getName())
+                    .register(registry);
+            Gauge.builder("app.datasource.replica.available", replica, r -> r.isAvailable() ? 1 : 0)
+                    .tag("replica", replica.getName())
+                    .register(registry);
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package fi.soininen.tatu.spring6restmvc.config;
+
+import fi.soininen.tatu.spring6restmvc.statements.StatementBudgetInterceptor;
+import fi.soininen.tatu.spring6restmvc.statements.StatementCountingInspector;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Per-request SQL statement budgets on the API handlers; see {@link StatementBudgetInterceptor}. Requests over
+ * budget are logged, or rejected with {@code app.statement-budget.reject=true}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.statement-budget.enabled", havingValue = "true", matchIfMissing = true)
+public class StatementBudgetConfig implements WebMvcConfigurer {
+
+    private final int defaultBudget;
+    private final boolean reject;
+
+    public StatementBudgetConfig(@Value("${app.statement-budget.default:10}") int defaultBudget,
+                                 @Value("${app.statement-budget.reject:false}") boolean reject) {
+        this.defaultBudget = defaultBudget;
+        this.reject = reject;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer statementCountingInspector() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new StatementCountingInspector());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new StatementBudgetInterceptor(defaultBudget, reject))
+                .addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,69 @@
+package fi.soininen.tatu.spring6restmvc.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import fi.soininen.tatu.spring6restmvc.concurrency.PermitGatedDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in execution mode, enabled with {@code app.virtual-threads.enabled=true}: Tomcat runs each request on its
+ * own virtual thread, and the DataSource is gated by one permit per pooled connection so that thousands of
+ * concurrent requests wait cheaply on a semaphore instead of inside the pool or the driver.
+ * <p>
+ * Virtual threads need Java 21. The executor is looked up at runtime so the application still builds for 17;
+ * on an older runtime Tomcat keeps its platform-thread pool and only the permit gate applies.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "app.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        Optional<ExecutorService> executor = newVirtualThreadPerTaskExecutor();
+        if (executor.isEmpty()) {
+            log.warn("app.virtual-threads.enabled is set but Java {} has no virtual threads; "
+                    + "serving requests on the platform-thread pool", Runtime.version().feature());
+            return protocolHandler -> { };
+        }
+
+        log.info("Serving requests on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(executor.get());
+    }
+
+    @Bean
+    public static BeanPostProcessor permitGatedDataSourcePostProcessor(
+            @Value("${app.virtual-threads.database-permit-timeout:2s}") Duration maxWait) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource) {
+                    return new PermitGatedDataSource(dataSource, dataSource.getMaximumPoolSize(), maxWait);
+                }
+                return bean;
+            }
+        };
+    }
+
+    static Optional<ExecutorService> newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return Optional.of((ExecutorService) factory.invoke(null));
+        } catch (NoSuchMethodException e) {
+            return Optional.empty();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create a virtual-thread executor", e);
+        }
+    }
+}
@@ -1,17 +1,41 @@
 package fi.soininen.tatu.spring6restmvc.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fi.soininen.tatu.spring6restmvc.config.MetricsConfig;
+import fi.soininen.tatu.spring6restmvc.model.BeerBatchResult;
+import fi.soininen.tatu.spring6restmvc.model.BeerDeleteResult;
 import fi.soininen.tatu.spring6restmvc.model.BeerDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerPatchDto;
 import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import fi.soininen.tatu.spring6restmvc.model.CursorPage;
+import fi.soininen.tatu.spring6restmvc.model.ExportFormat;
+import fi.soininen.tatu.spring6restmvc.model.PageCursor;
+import fi.soininen.tatu.spring6restmvc.services.BeerBatchService;
+import fi.soininen.tatu.spring6restmvc.services.BeerExportService;
 import fi.soininen.tatu.spring6restmvc.services.BeerService;
+import fi.soininen.tatu.spring6restmvc.statements.StatementBudget;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -19,14 +43,27 @@ import java.util.UUID;
  */
 @Slf4j
 @RequiredArgsConstructor
+@Timed(MetricsConfig.CONTROLLER_TIMER)
 @RestController
 public class BeerController {
 
     public static final String BEER_PATH = "/api/v1/beer";
     public static final String BEER_PATH_ID = BEER_PATH + "/{beerId}";
+    public static final String BEER_COUNT_PATH = BEER_PATH + "/count";
+    public static final String BEER_EXPORT_PATH = BEER_PATH + "/export";
+    public static final String BEER_BATCH_PATH = BEER_PATH + "/batch";
+
+    static final int MAX_DELETE_IDS = 1000;
 
     private final BeerService beerService;
+    private final BeerExportService beerExportService;
+    private final BeerBatchService beerBatchService;
+    private final ObjectMapper objectMapper;
 
+    /**
+     * A beer that orders refer to is kept and answered with 409.
+     */
+    @StatementBudget(2)
     @DeleteMapping(BEER_PATH_ID)
     public ResponseEntity deleteById(@PathVariable("beerId") UUID beerId) {
 
@@ -37,40 +74,199 @@ public class BeerController {
         return new ResponseEntity(HttpStatus.NO_CONTENT);
     }
 
+    /**
+     * Deletes the beers whose ids are listed in the body, a chunk of ids per {@code IN} list, and reports how many
+     * went and which were kept because orders refer to them.
+     */
+    @StatementBudget(6)
+    @DeleteMapping(BEER_PATH)
+    public BeerDeleteResult deleteByIds(@RequestBody List<UUID> beerIds) {
+
+        if (beerIds.isEmpty() || beerIds.size() > MAX_DELETE_IDS) {
+            throw new BadRequestException("Between 1 and " + MAX_DELETE_IDS + " ids required");
+        }
+        if (beerIds.contains(null)) {
+            throw new BadRequestException("Ids must not be null");
+        }
+
+        return beerService.deleteBeersByIds(beerIds);
+    }
+
+    /**
+     * With {@code If-Match} carrying the ETag from an earlier GET, the update only applies if the beer is still
+     * at that version; otherwise the answer is 412 and nothing is written.
+     */
     @PutMapping(BEER_PATH_ID)
-    public ResponseEntity updateById(@PathVariable UUID beerId, @Validated @RequestBody BeerDto beer) {
+    public ResponseEntity updateById(@PathVariable UUID beerId, @Validated @RequestBody BeerDto beer,
+                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
-        if (beerService.updateBeerById(beerId, beer).isEmpty()) {
+        Integer expectedVersion = null;
+        if (ifMatch != null) {
+            try {
+                expectedVersion = ETags.parseVersion(ifMatch);
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException(e.getMessage(), e);
+            }
+        }
+
+        Optional<BeerDto> updated = expectedVersion == null
+                ? beerService.updateBeerById(beerId, beer)
+                : beerService.updateBeerById(beerId, beer, expectedVersion);
+
+        if (updated.isEmpty()) {
             throw new NotFoundException();
         }
 
         HttpHeaders headers = new HttpHeaders();
         headers.add("Location",  BEER_PATH + "/" + beerId.toString());
+        if (updated.get().getVersion() != null) {
+            headers.setETag(ETags.ofVersion(updated.get().getVersion()));
+        }
+
+        return new ResponseEntity(headers, HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * Writes only the fields present in the body, as one UPDATE guarded by the version; the beer is not read
+     * first. The version comes from {@code If-Match}, or from the body when the header is absent. A second
+     * statement only runs when the UPDATE matches nothing, to tell 404 from 412.
+     */
+    @StatementBudget(2)
+    @PatchMapping(BEER_PATH_ID)
+    public ResponseEntity patchById(@PathVariable UUID beerId, @Validated @RequestBody BeerPatchDto patch,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+
+        int expectedVersion = ETags.requireVersion(ifMatch, patch.getVersion());
+
+        if (patch.isEmpty()) {
+            throw new BadRequestException("Patch changes no field");
+        }
+
+        Integer version = beerService.patchBeerById(beerId, patch, expectedVersion)
+                .orElseThrow(NotFoundException::new);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Location", BEER_PATH + "/" + beerId.toString());
+        headers.setETag(ETags.ofVersion(version));
 
         return new ResponseEntity(headers, HttpStatus.NO_CONTENT);
     }
 
-   @PostMapping(BEER_PATH)
+    /**
+     * The body may carry the id to create the beer under. Posting the same id again answers 200 with the beer's
+     * location and leaves it as it is, so a client can retry a create it got no answer for.
+     */
+    @PostMapping(BEER_PATH)
     public ResponseEntity handlePost(@Validated @RequestBody BeerDto beer) {
 
         log.debug("Beer Controller: {}", beer.toString());
 
-        BeerDto savedBeer = beerService.saveNewBeer(beer);
+        UUID beerId;
+        HttpStatus status = HttpStatus.CREATED;
+        try {
+            beerId = beerService.saveNewBeer(beer).getId();
+        } catch (DuplicateKeyException e) {
+            beerId = beer.getId();
+            status = HttpStatus.OK;
+        }
 
         HttpHeaders headers = new HttpHeaders();
-        headers.add("Location", BEER_PATH + "/" + savedBeer.getId().toString());
+        headers.add("Location", BEER_PATH + "/" + beerId.toString());
+
+        return new ResponseEntity(headers, status);
+    }
+
+    /**
+     * Creates items without an id and updates items with one. The body is either a JSON array or NDJSON; both are
+     * read item by item, so a large sync never sits in memory as a whole. Every item gets a result, in input order,
+     * up to the first item that cannot be parsed: that one is reported as invalid and nothing after it is read.
+     */
+    @PostMapping(value = BEER_BATCH_PATH, consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public List<BeerBatchResult> handleBatch(InputStream body) throws IOException {
 
-        return new ResponseEntity(headers, HttpStatus.CREATED);
+        try (MappingIterator<BeerDto> beers = objectMapper.readerFor(BeerDto.class).readValues(body)) {
+            return beerBatchService.saveBeers(beers);
+        }
     }
+
+    /**
+     * The page carries a weak ETag over its ids, versions and total; a matching {@code If-None-Match} gets a 304
+     * and the page is never serialized.
+     */
+    @StatementBudget(2)
     @GetMapping(BEER_PATH)
     public Page<BeerDto> listBeers(@RequestParam(required = false) String beerName,
                                    @RequestParam(required = false) BeerStyle beerStyle,
                                    @RequestParam(required = false) Boolean showInventory,
                                    @RequestParam(required = false) Integer pageNumber,
-                                   @RequestParam(required = false) Integer pageSize){
+                                   @RequestParam(required = false) Integer pageSize,
+                                   WebRequest webRequest){
+
+        Page<BeerDto> page = beerService.listBeers(beerName, beerStyle, showInventory, pageNumber, pageSize);
 
+        if (webRequest.checkNotModified(ETags.ofPage(page, BeerDto::getId, BeerDto::getVersion))) {
+            return null;
+        }
 
-        return beerService.listBeers(beerName, beerStyle, showInventory, pageNumber, pageSize);
+        return page;
+    }
+
+    /**
+     * Count-free mode for infinite scrolling: the response only tells whether a next page exists.
+     * Clients that need the total can fetch it once from {@link #countBeers}.
+     */
+    @GetMapping(value = BEER_PATH, params = {"slice=true", "!after"})
+    public Slice<BeerDto> listBeersSlice(@RequestParam(required = false) String beerName,
+                                         @RequestParam(required = false) BeerStyle beerStyle,
+                                         @RequestParam(required = false) Boolean showInventory,
+                                         @RequestParam(required = false) Integer pageNumber,
+                                         @RequestParam(required = false) Integer pageSize){
+
+        return beerService.listBeersSlice(beerName, beerStyle, showInventory, pageNumber, pageSize);
+    }
+
+    @GetMapping(BEER_COUNT_PATH)
+    public long countBeers(@RequestParam(required = false) String beerName,
+                           @RequestParam(required = false) BeerStyle beerStyle){
+
+        return beerService.countBeers(beerName, beerStyle);
+    }
+
+    /**
+     * Keyset mode, selected by the presence of {@code after}. Send an empty {@code after} for the first page
+     * and the returned {@code next} token for each following one.
+     */
+    @GetMapping(value = BEER_PATH, params = "after")
+    public CursorPage<BeerDto> listBeersAfter(@RequestParam(required = false) String beerName,
+                                              @RequestParam(required = false) BeerStyle beerStyle,
+                                              @RequestParam(required = false) Boolean showInventory,
+                                              @RequestParam String after,
+                                              @RequestParam(required = false) Integer pageSize){
+
+        PageCursor cursor;
+        try {
+            cursor = PageCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        }
+
+        return beerService.listBeersAfter(beerName, beerStyle, showInventory, cursor, pageSize);
+    }
+
+    /**
+     * The whole catalog in one response, written while it is read. Paging through {@link #listBeers} is capped at
+     * 1000 rows per request and re-runs an offset query for every page.
+     */
+    @GetMapping(BEER_EXPORT_PATH)
+    public ResponseEntity<StreamingResponseBody> exportBeers(
+            @RequestParam(required = false, defaultValue = "NDJSON") ExportFormat format) {
+
+        StreamingResponseBody body = out -> beerExportService.exportBeers(format, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"beers." + format.name().toLowerCase() + "\"")
+                .body(body);
     }
 
     @ExceptionHandler(NotFoundException.class)
@@ -78,11 +274,31 @@ public class BeerController {
         return ResponseEntity.notFound().build();
     }
 
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity handleDataIntegrityViolation() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @ExceptionHandler({PreconditionFailedException.class, OptimisticLockingFailureException.class})
+    public ResponseEntity handlePreconditionFailed() {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+    }
+
+    /**
+     * Only the version is read to answer {@code If-None-Match}; the beer is mapped and serialized when it changed.
+     */
+    @StatementBudget(2)
     @GetMapping(BEER_PATH_ID)
-    public BeerDto getBeerById(@PathVariable("beerId") UUID beerId){
+    public BeerDto getBeerById(@PathVariable("beerId") UUID beerId, WebRequest webRequest){
 
         log.debug("Get Beer by Id - in controller!");
 
+        Integer version = beerService.getBeerVersion(beerId).orElseThrow(NotFoundException::new);
+
+        if (webRequest.checkNotModified(ETags.ofVersion(version))) {
+            return null;
+        }
+
         return beerService.getBeerById(beerId).orElseThrow(NotFoundException::new);
     }
 
@@ -0,0 +1,87 @@
+package fi.soininen.tatu.spring6restmvc.controller;
+
+import fi.soininen.tatu.spring6restmvc.config.MetricsConfig;
+import fi.soininen.tatu.spring6restmvc.model.BeerOrderCreateDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerOrderDto;
+import fi.soininen.tatu.spring6restmvc.services.BeerOrderService;
+import fi.soininen.tatu.spring6restmvc.services.InsufficientInventoryException;
+import fi.soininen.tatu.spring6restmvc.statements.StatementBudget;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Slf4j
+@RequiredArgsConstructor
+@Timed(MetricsConfig.CONTROLLER_TIMER)
+@RestController
+public class BeerOrderController {
+
+    public static final String BEER_ORDER_PATH = "/api/v1/beerorder";
+    public static final String BEER_ORDER_PATH_ID = BEER_ORDER_PATH + "/{beerOrderId}";
+
+    private final BeerOrderService beerOrderService;
+
+    /**
+     * Creates the order and allocates its stock in one transaction. An order that cannot be allocated in full is
+     * not created: {@code 409} when a beer is short of stock, {@code 400} when it does not exist. A retry under an
+     * order id that was already placed answers 200 with the order's location and allocates nothing.
+     */
+    @PostMapping(BEER_ORDER_PATH)
+    public ResponseEntity handlePost(@Validated @RequestBody BeerOrderCreateDto beerOrder) {
+
+        log.debug("Beer Order Controller: {}", beerOrder);
+
+        UUID beerOrderId;
+        HttpStatus status = HttpStatus.CREATED;
+        try {
+            beerOrderId = beerOrderService.placeOrder(beerOrder).orElseThrow(NotFoundException::new);
+        } catch (DuplicateKeyException e) {
+            beerOrderId = beerOrder.getId();
+            status = HttpStatus.OK;
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Location", BEER_ORDER_PATH + "/" + beerOrderId);
+
+        return new ResponseEntity(headers, status);
+    }
+
+    @StatementBudget(1)
+    @GetMapping(BEER_ORDER_PATH_ID)
+    public BeerOrderDto getBeerOrderById(@PathVariable("beerOrderId") UUID beerOrderId) {
+        return beerOrderService.getBeerOrderById(beerOrderId).orElseThrow(NotFoundException::new);
+    }
+
+    @StatementBudget(3)
+    @GetMapping(BEER_ORDER_PATH)
+    public Page<BeerOrderDto> listBeerOrders(@RequestParam(required = false) UUID customerId,
+                                             @RequestParam(required = false) Integer pageNumber,
+                                             @RequestParam(required = false) Integer pageSize) {
+        return beerOrderService.listBeerOrders(customerId, pageNumber, pageSize);
+    }
+
+    @ExceptionHandler(InsufficientInventoryException.class)
+    public ResponseEntity handleInsufficientInventory(InsufficientInventoryException exception) {
+        HttpStatus status = exception.isUnknownBeer() ? HttpStatus.BAD_REQUEST : HttpStatus.CONFLICT;
+
+        return ResponseEntity.status(status)
+                .body(List.of(Map.of("beerId", exception.getBeerId().toString(), "message", exception.getMessage())));
+    }
+}
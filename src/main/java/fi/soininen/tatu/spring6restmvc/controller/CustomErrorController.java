@@ -1,6 +1,10 @@
 package fi.soininen.tatu.spring6restmvc.controller;
 
+import fi.soininen.tatu.spring6restmvc.concurrency.DatabasePermitTimeoutException;
+import fi.soininen.tatu.spring6restmvc.statements.StatementBudgetExceededException;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.TransactionSystemException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -20,22 +24,28 @@ public class CustomErrorController {
         ResponseEntity.BodyBuilder responseEntity = ResponseEntity.badRequest();
 
         if (exception.getCause().getCause() instanceof ConstraintViolationException) {
-            ConstraintViolationException ve = (ConstraintViolationException) exception.getCause().getCause();
-
-            List errors = ve.getConstraintViolations().stream()
-                                        .map(constraintViolation -> {
-                                            Map<String, String> errMap = new HashMap<>();
-                                            errMap.put(constraintViolation.getPropertyPath().toString(),
-                                                    constraintViolation.getMessage());
-                                            return errMap;
-                                        }).toList();
-
-            return responseEntity.body(errors);
+            return responseEntity.body(violations((ConstraintViolationException) exception.getCause().getCause()));
         }
 
         return responseEntity.build();
     }
 
+    // Inserts flushed inside the repository call fail here rather than at commit
+    @ExceptionHandler
+    ResponseEntity handleEntityViolations(ConstraintViolationException exception) {
+        return ResponseEntity.badRequest().body(violations(exception));
+    }
+
+    private static List<Map<String, String>> violations(ConstraintViolationException exception) {
+        return exception.getConstraintViolations().stream()
+                .map(constraintViolation -> {
+                    Map<String, String> errMap = new HashMap<>();
+                    errMap.put(constraintViolation.getPropertyPath().toString(),
+                            constraintViolation.getMessage());
+                    return errMap;
+                }).toList();
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     ResponseEntity handleBindErrors(MethodArgumentNotValidException exception) {
 
@@ -49,4 +59,18 @@ public class CustomErrorController {
 
         return ResponseEntity.badRequest().body(errorList);
     }
+
+    // Matched as the cause of the transaction or data access exception that wraps it
+    @ExceptionHandler(DatabasePermitTimeoutException.class)
+    ResponseEntity handleDatabasePermitTimeout() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+
+    // Only thrown when budgets are enforced, which is meant to fail loudly in development and tests
+    @ExceptionHandler(StatementBudgetExceededException.class)
+    ResponseEntity handleStatementBudgetExceeded(StatementBudgetExceededException exception) {
+        return ResponseEntity.internalServerError().body(exception.getMessage());
+    }
 }
@@ -1,26 +1,47 @@
 package fi.soininen.tatu.spring6restmvc.controller;
 
+import fi.soininen.tatu.spring6restmvc.config.MetricsConfig;
+import fi.soininen.tatu.spring6restmvc.model.CursorPage;
 import fi.soininen.tatu.spring6restmvc.model.CustomerDto;
+import fi.soininen.tatu.spring6restmvc.model.CustomerPatchDto;
+import fi.soininen.tatu.spring6restmvc.model.ExportFormat;
+import fi.soininen.tatu.spring6restmvc.model.PageCursor;
+import fi.soininen.tatu.spring6restmvc.services.CustomerExportService;
 import fi.soininen.tatu.spring6restmvc.services.CustomerService;
+import fi.soininen.tatu.spring6restmvc.statements.StatementBudget;
+import io.micrometer.core.annotation.Timed;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
 import java.util.UUID;
 
 @Slf4j
 @AllArgsConstructor
+@Timed(MetricsConfig.CONTROLLER_TIMER)
 @RestController
 public class CustomerController {
 
     public static final String CUSTOMER_PATH = "/api/v1/customer";
     public static final String CUSTOMER_PATH_ID = CUSTOMER_PATH + "/{customerId}";
+    public static final String CUSTOMER_EXPORT_PATH = CUSTOMER_PATH + "/export";
     private final CustomerService customerService;
+    private final CustomerExportService customerExportService;
 
+    /**
+     * A customer with orders is kept and answered with 409.
+     */
+    @StatementBudget(1)
     @DeleteMapping(CUSTOMER_PATH_ID)
     public ResponseEntity deleteById(@PathVariable("customerId") UUID customerId) {
 
@@ -45,26 +66,115 @@ public class CustomerController {
         return new ResponseEntity(headers, HttpStatus.NO_CONTENT);
     }
 
+    /**
+     * Writes only the fields present in the body, as one UPDATE guarded by the version; the customer is not read
+     * first. The version comes from {@code If-Match}, or from the body when the header is absent. A second
+     * statement only runs when the UPDATE matches nothing, to tell 404 from 412.
+     */
+    @StatementBudget(2)
+    @PatchMapping(CUSTOMER_PATH_ID)
+    public ResponseEntity patchById(@PathVariable("customerId") UUID customerId,
+                                    @Validated @RequestBody CustomerPatchDto patch,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+
+        int expectedVersion = ETags.requireVersion(ifMatch, patch.getVersion());
+
+        if (patch.isEmpty()) {
+            throw new BadRequestException("Patch changes no field");
+        }
+
+        Integer version = customerService.patchCustomerById(customerId, patch, expectedVersion)
+                .orElseThrow(NotFoundException::new);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Location", CUSTOMER_PATH + "/" + customerId.toString());
+        headers.setETag(ETags.ofVersion(version));
+
+        return new ResponseEntity(headers, HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * Posting again under an id that was already created answers 200 with its location; nothing is overwritten.
+     */
     @PostMapping(CUSTOMER_PATH)
     public ResponseEntity handlePost(@RequestBody CustomerDto customer) {
 
         log.debug("Customer Controller: {}", customer.toString());
 
-        CustomerDto savedCustomer = customerService.saveNewCustomer(customer);
+        UUID customerId;
+        HttpStatus status = HttpStatus.CREATED;
+        try {
+            customerId = customerService.saveNewCustomer(customer).getId();
+        } catch (DuplicateKeyException e) {
+            customerId = customer.getId();
+            status = HttpStatus.OK;
+        }
 
         HttpHeaders headers = new HttpHeaders();
-        headers.add("Location", CUSTOMER_PATH + "/" + savedCustomer.getId().toString());
+        headers.add("Location", CUSTOMER_PATH + "/" + customerId.toString());
+
+        return new ResponseEntity(headers, status);
+    }
+
+    /**
+     * One page of customers ordered by name. {@code name} matches a prefix and {@code email} an exact address.
+     */
+    @GetMapping(value = CUSTOMER_PATH, params = "!after")
+    public Page<CustomerDto> getCustomers(@RequestParam(required = false) String name,
+                                          @RequestParam(required = false) String email,
+                                          @RequestParam(required = false) Integer pageNumber,
+                                          @RequestParam(required = false) Integer pageSize) {
+
+        return customerService.listCustomers(name, email, pageNumber, pageSize);
+    }
+
+    /**
+     * Keyset mode, selected by the presence of {@code after}. Send an empty {@code after} for the first page
+     * and the returned {@code next} token for each following one.
+     */
+    @GetMapping(value = CUSTOMER_PATH, params = "after")
+    public CursorPage<CustomerDto> getCustomersAfter(@RequestParam(required = false) String name,
+                                                     @RequestParam(required = false) String email,
+                                                     @RequestParam String after,
+                                                     @RequestParam(required = false) Integer pageSize) {
+
+        PageCursor cursor;
+        try {
+            cursor = PageCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        }
 
-        return new ResponseEntity(headers, HttpStatus.CREATED);
+        return customerService.listCustomersAfter(name, email, cursor, pageSize);
     }
 
-    @GetMapping(CUSTOMER_PATH)
-    public List<CustomerDto> getCustomers() {
-        return customerService.listCustomers();
+    /**
+     * Every customer in one response, written while it is read.
+     */
+    @GetMapping(CUSTOMER_EXPORT_PATH)
+    public ResponseEntity<StreamingResponseBody> exportCustomers(
+            @RequestParam(required = false, defaultValue = "NDJSON") ExportFormat format) {
+
+        StreamingResponseBody body = out -> customerExportService.exportCustomers(format, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"customers." + format.name().toLowerCase() + "\"")
+                .body(body);
     }
 
     @GetMapping(CUSTOMER_PATH_ID)
     public CustomerDto getCustomerById(@PathVariable("customerId") UUID customerId) {
         return customerService.getCustomerById(customerId).orElseThrow(NotFoundException::new);
     }
+
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity handleDataIntegrityViolation() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity handleVersionConflict() {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+    }
 }
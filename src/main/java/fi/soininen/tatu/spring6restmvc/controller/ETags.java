@@ -0,0 +1,92 @@
+package fi.soininen.tatu.spring6restmvc.controller;
+
+import org.springframework.data.domain.Page;
+
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Weak entity tags built from the JPA {@code @Version} column. A version only moves forward, so comparing
+ * tags never needs the representation itself.
+ */
+final class ETags {
+
+    private static final String WEAK_PREFIX = "W/";
+
+    private ETags() {
+    }
+
+    static String ofVersion(Integer version) {
+        return WEAK_PREFIX + "\"" + version + "\"";
+    }
+
+    /**
+     * Tag for one page of a listing: changes when any row on the page is added, removed, reordered or updated,
+     * or when the total moves.
+     */
+    static <T> String ofPage(Page<T> page, Function<T, UUID> id, Function<T, Integer> version) {
+        long hash = page.getTotalElements();
+        hash = 31 * hash + page.getNumber();
+        hash = 31 * hash + page.getSize();
+
+        for (T row : page.getContent()) {
+            UUID rowId = id.apply(row);
+            hash = 31 * hash + rowId.getMostSignificantBits();
+            hash = 31 * hash + rowId.getLeastSignificantBits();
+            hash = 31 * hash + String.valueOf(version.apply(row)).hashCode();
+        }
+
+        return WEAK_PREFIX + "\"p" + Long.toHexString(hash) + "\"";
+    }
+
+    /**
+     * Version named by an {@code If-Match} header, or {@code null} for {@code *}.
+     *
+     * @throws IllegalArgumentException if the header is not a single version tag
+     */
+    static Integer parseVersion(String ifMatch) {
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return null;
+        }
+
+        if (tag.startsWith(WEAK_PREFIX)) {
+            tag = tag.substring(WEAK_PREFIX.length());
+        }
+
+        if (tag.length() < 2 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new IllegalArgumentException("If-Match must be a single entity tag: " + ifMatch);
+        }
+
+        try {
+            return Integer.valueOf(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match does not name a version: " + ifMatch, e);
+        }
+    }
+
+    /**
+     * Version a conditional write has to match: the one named by {@code If-Match}, or else the one sent in the
+     * body.
+     *
+     * @throws BadRequestException if the header is not a single version tag
+     * @throws PreconditionRequiredException if neither names a version
+     */
+    static int requireVersion(String ifMatch, Integer bodyVersion) {
+        Integer version = bodyVersion;
+
+        if (ifMatch != null) {
+            try {
+                version = parseVersion(ifMatch);
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException(e.getMessage(), e);
+            }
+        }
+
+        if (version == null) {
+            throw new PreconditionRequiredException("Send If-Match or a version to update part of a resource");
+        }
+
+        return version;
+    }
+}
@@ -0,0 +1,23 @@
+package fi.soininen.tatu.spring6restmvc.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.PRECONDITION_REQUIRED, reason = "Version required")
+public class PreconditionRequiredException extends RuntimeException {
+
+    public PreconditionRequiredException() {
+    }
+
+    public PreconditionRequiredException(String message) {
+        super(message);
+    }
+
+    public PreconditionRequiredException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public PreconditionRequiredException(Throwable cause) {
+        super(cause);
+    }
+}
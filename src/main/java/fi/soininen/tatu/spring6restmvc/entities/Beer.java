@@ -1,16 +1,22 @@
 package fi.soininen.tatu.spring6restmvc.entities;
 
+import fi.soininen.tatu.spring6restmvc.ids.TimeOrderedUuidGenerator;
 import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import fi.soininen.tatu.spring6restmvc.search.BeerNameIndexListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -22,15 +28,26 @@ import java.util.UUID;
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        @Index(name = "ix_beer_name_id", columnList = "beerName, id"),
+        @Index(name = "ix_beer_style_name_id", columnList = "beerStyle, beerName, id"),
+        @Index(name = "ix_beer_upc", columnList = "upc"),
+        @Index(name = "ix_beer_updated_date", columnList = "updatedDate")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "beer")
+@EntityListeners(BeerNameIndexListener.class)
+// Lazy references, such as the beer of each order line, are loaded up to this many per statement
+@BatchSize(size = 100)
 @AllArgsConstructor
 @NoArgsConstructor
-public class Beer {
+public class Beer implements Persistable<UUID> {
 
     @Id
     @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
-    @JdbcTypeCode(SqlTypes.CHAR)
-    @Column(length = 36, columnDefinition = "varchar(36)", updatable = false, nullable = false)
+    @GenericGenerator(name = "UUID", strategy = TimeOrderedUuidGenerator.STRATEGY)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16, columnDefinition = "binary(16)", updatable = false, nullable = false)
     private UUID id;
 
     @Version
@@ -67,6 +84,7 @@ public class Beer {
 
     @Builder.Default
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "beer-categories")
     @JoinTable(name = "beer_category",
         joinColumns = @JoinColumn(name = "beer_id"),
         inverseJoinColumns = @JoinColumn(name = "category_id"))
@@ -81,4 +99,13 @@ public class Beer {
         this.categories.remove(category);
         category.getBeers().remove(this);
     }
+
+    /**
+     * New until Hibernate has assigned a version. The id alone cannot tell: a client may supply it, and Spring Data
+     * would then merge, reading the beer before inserting it.
+     */
+    @Override
+    public boolean isNew() {
+        return version == null;
+    }
 }
@@ -1,5 +1,6 @@
 package fi.soininen.tatu.spring6restmvc.entities;
 
+import fi.soininen.tatu.spring6restmvc.ids.TimeOrderedUuidGenerator;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
@@ -7,6 +8,7 @@ import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
 
 import java.sql.Timestamp;
 import java.util.UUID;
@@ -17,18 +19,15 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class BeerOrderLine {
+public class BeerOrderLine implements Persistable<UUID> {
     @Id
     @GeneratedValue(generator = "UUID")
-    @GenericGenerator(
-            name = "UUID",
-            strategy = "org.hibernate.id.UUIDGenerator"
-    )
-    @JdbcTypeCode(SqlTypes.CHAR)
-    @Column(length = 36, columnDefinition = "varchar(36", updatable = false, nullable = false)
+    @GenericGenerator(name = "UUID", strategy = TimeOrderedUuidGenerator.STRATEGY)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16, columnDefinition = "binary(16)", updatable = false, nullable = false)
     private UUID id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Beer beer;
 
     @Version
@@ -47,5 +46,8 @@ public class BeerOrderLine {
     @ManyToOne
     private BeerOrder beerOrder;
 
-    public boolean isNew() { return this.id == null; }
+    @Override
+    public boolean isNew() {
+        return version == null;
+    }
 }
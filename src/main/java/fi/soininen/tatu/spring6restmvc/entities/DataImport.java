@@ -0,0 +1,31 @@
+package fi.soininen.tatu.spring6restmvc.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Last successful import of a bootstrap data file, keyed by its classpath location.
+ */
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class DataImport {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(length = 64, nullable = false)
+    private String checksum;
+
+    private Integer rowCount;
+
+    private LocalDateTime importedDate;
+}
@@ -0,0 +1,26 @@
+package fi.soininen.tatu.spring6restmvc.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Single row written to the primary on every heartbeat; how old it is on a replica is that replica's lag.
+ * Read and written with plain JDBC, mapped only so the schema is generated with the rest.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class ReplicaHeartbeat {
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private LocalDateTime beat;
+}
@@ -0,0 +1,20 @@
+package fi.soininen.tatu.spring6restmvc.ids;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+/**
+ * Hibernate id generator for {@link TimeOrderedUuids}. Referenced by name from {@code @GenericGenerator}. An id the
+ * client already assigned is kept, so a create can be retried under the same id.
+ */
+public class TimeOrderedUuidGenerator implements IdentifierGenerator {
+
+    public static final String STRATEGY = "fi.soininen.tatu.spring6restmvc.ids.TimeOrderedUuidGenerator";
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        Object assigned = session.getEntityPersister(null, object).getIdentifier(object, session);
+
+        return assigned != null ? assigned : TimeOrderedUuids.next();
+    }
+}
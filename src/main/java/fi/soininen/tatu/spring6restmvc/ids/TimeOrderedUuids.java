@@ -0,0 +1,64 @@
+package fi.soininen.tatu.spring6restmvc.ids;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version 7 UUIDs: a 48-bit Unix millisecond timestamp, a 12-bit sequence and 62 random bits. Stored big-endian in
+ * {@code binary(16)}, consecutive ids land next to each other at the right-hand edge of the clustered index instead
+ * of splitting pages all over it.
+ */
+public final class TimeOrderedUuids {
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT_RFC_4122 = 0x8000_0000_0000_0000L;
+    private static final long RANDOM_62_BITS = 0x3FFF_FFFF_FFFF_FFFFL;
+
+    /**
+     * The order of {@code binary(16)} id columns: bytes compared unsigned, left to right. {@link UUID#compareTo}
+     * compares signed longs and disagrees for ids with the top bit set, such as the random ids of older rows.
+     */
+    public static final Comparator<UUID> BINARY_ORDER = Comparator
+            .<UUID, Long>comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    /**
+     * Timestamp and sequence of the last id, packed as {@code millis << 12 | sequence}.
+     */
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private TimeOrderedUuids() {
+    }
+
+    /**
+     * A new id that sorts after every id this JVM generated before it. When more than 4096 ids are generated in
+     * one millisecond, the sequence carries into the timestamp, which runs ahead of the clock until it catches up.
+     */
+    public static UUID next() {
+        long candidate = System.currentTimeMillis() << SEQUENCE_BITS;
+        long stamp = LAST.updateAndGet(last -> Math.max(candidate, last + 1));
+
+        long millis = stamp >>> SEQUENCE_BITS;
+        long sequence = stamp & ((1L << SEQUENCE_BITS) - 1);
+
+        long mostSignificant = (millis << 16) | VERSION_7 | sequence;
+        // Ids are not secrets, so the faster non-cryptographic generator is enough for the random part
+        long leastSignificant = VARIANT_RFC_4122 | (ThreadLocalRandom.current().nextLong() & RANDOM_62_BITS);
+
+        return new UUID(mostSignificant, leastSignificant);
+    }
+
+    /**
+     * The 16 bytes stored in a {@code binary(16)} id column, for binding ids in plain JDBC statements.
+     */
+    public static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+}
@@ -0,0 +1,17 @@
+package fi.soininen.tatu.spring6restmvc.mappers;
+
+import fi.soininen.tatu.spring6restmvc.entities.BeerOrder;
+import fi.soininen.tatu.spring6restmvc.entities.BeerOrderLine;
+import fi.soininen.tatu.spring6restmvc.entities.BeerOrderShipment;
+import fi.soininen.tatu.spring6restmvc.model.BeerOrderDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerOrderLineDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerOrderShipmentDto;
+import org.mapstruct.Mapper;
+
+@Mapper(uses = {BeerMapper.class, CustomerMapper.class})
+public interface BeerOrderMapper {
+
+    BeerOrderDto beerOrderToBeerOrderDto(BeerOrder beerOrder);
+    BeerOrderLineDto beerOrderLineToBeerOrderLineDto(BeerOrderLine beerOrderLine);
+    BeerOrderShipmentDto beerOrderShipmentToBeerOrderShipmentDto(BeerOrderShipment beerOrderShipment);
+}
@@ -0,0 +1,26 @@
+package fi.soininen.tatu.spring6restmvc.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Outcome of one item of a batch write, in input order. {@code index} is the item's zero-based position in the
+ * request; {@code errors} maps property paths to messages for rejected items.
+ */
+@Builder
+@Data
+public class BeerBatchResult {
+
+    public enum Status {
+        CREATED, UPDATED, INVALID, NOT_FOUND, CONFLICT, FAILED
+    }
+
+    private int index;
+    private UUID id;
+    private Integer version;
+    private Status status;
+    private Map<String, String> errors;
+}
@@ -0,0 +1,20 @@
+package fi.soininen.tatu.spring6restmvc.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outcome of a bulk delete. Beers in {@code ordered} are kept because order lines still refer to them; any other
+ * requested id that was not deleted did not exist.
+ */
+@Builder
+@Data
+public class BeerDeleteResult {
+
+    private int requested;
+    private int deleted;
+    private List<UUID> ordered;
+}
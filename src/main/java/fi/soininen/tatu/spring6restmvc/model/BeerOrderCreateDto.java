@@ -0,0 +1,27 @@
+package fi.soininen.tatu.spring6restmvc.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Builder
+@Data
+public class BeerOrderCreateDto {
+
+    // Optional; lets a client retry the create without placing the order twice
+    private UUID id;
+
+    @NotNull
+    private UUID customerId;
+
+    private String customerRef;
+
+    @NotEmpty
+    @Valid
+    private List<BeerOrderLineCreateDto> beerOrderLines;
+}
@@ -0,0 +1,21 @@
+package fi.soininen.tatu.spring6restmvc.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+@Builder
+@Data
+public class BeerOrderDto {
+    private UUID id;
+    private Long version;
+    private String customerRef;
+    private CustomerDto customer;
+    private Set<BeerOrderLineDto> beerOrderLines;
+    private BeerOrderShipmentDto beerOrderShipment;
+    private LocalDateTime createdDate;
+    private LocalDateTime lastModifiedDate;
+}
@@ -0,0 +1,16 @@
+package fi.soininen.tatu.spring6restmvc.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Builder
+@Data
+public class BeerOrderLineDto {
+    private UUID id;
+    private Long version;
+    private BeerDto beer;
+    private Integer orderQuantity;
+    private Integer quantityAllocated;
+}
@@ -0,0 +1,17 @@
+package fi.soininen.tatu.spring6restmvc.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Builder
+@Data
+public class BeerOrderShipmentDto {
+    private UUID id;
+    private Long version;
+    private String trackingNumber;
+    private LocalDateTime createdDate;
+    private LocalDateTime updatedDate;
+}
@@ -0,0 +1,41 @@
+package fi.soininen.tatu.spring6restmvc.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Partial update of a beer. Absent (null) fields are left unchanged; present ones must be valid {@link BeerDto}
+ * values. {@code version} is only read when the request has no {@code If-Match} header.
+ */
+@Builder
+@Data
+public class BeerPatchDto {
+
+    private Integer version;
+
+    @Pattern(regexp = ".*\\S.*", message = "must not be blank")
+    @Size(max = 50)
+    private String beerName;
+
+    private BeerStyle beerStyle;
+
+    @Pattern(regexp = ".*\\S.*", message = "must not be blank")
+    @Size(max = 255)
+    private String upc;
+
+    @PositiveOrZero
+    private Integer quantityOnHand;
+
+    private BigDecimal price;
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return beerName == null && beerStyle == null && upc == null && quantityOnHand == null && price == null;
+    }
+}
@@ -0,0 +1,17 @@
+package fi.soininen.tatu.spring6restmvc.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One keyset page. {@code next} is the token for the following page, or null on the last page.
+ */
+@Builder
+@Data
+public class CursorPage<T> {
+    private List<T> content;
+    private int size;
+    private String next;
+}
@@ -11,6 +11,7 @@ import java.util.UUID;
 public class CustomerDto {
     private UUID id;
     private String name;
+    private String email;
     private Integer version;
     private LocalDateTime createdDate;
     private LocalDateTime updatedDate;
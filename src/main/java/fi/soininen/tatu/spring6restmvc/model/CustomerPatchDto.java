@@ -0,0 +1,32 @@
+package fi.soininen.tatu.spring6restmvc.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Partial update of a customer. Absent (null) fields are left unchanged. {@code version} is only read when the
+ * request has no {@code If-Match} header.
+ */
+@Builder
+@Data
+public class CustomerPatchDto {
+
+    private Integer version;
+
+    @Pattern(regexp = ".*\\S.*", message = "must not be blank")
+    @Size(max = 255)
+    private String name;
+
+    @Email
+    @Size(max = 255)
+    private String email;
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return name == null && email == null;
+    }
+}
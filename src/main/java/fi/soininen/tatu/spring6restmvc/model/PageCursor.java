@@ -0,0 +1,55 @@
+package fi.soininen.tatu.spring6restmvc.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position of a keyset (seek) page: the sort key and id of the last row the client has seen.
+ * Clients only ever see the opaque, URL-safe token produced by {@link #encode()}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class PageCursor {
+
+    /**
+     * Sorts before every row: sort keys are never blank and the nil UUID is the smallest id.
+     */
+    public static final PageCursor FIRST = new PageCursor("", new UUID(0L, 0L));
+
+    private static final int UUID_LENGTH = 36;
+
+    private final String sortKey;
+    private final UUID id;
+
+    public String encode() {
+        // The id has a fixed length, so the sort key needs no escaping
+        String raw = id.toString() + ":" + sortKey;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String token) {
+        if (!StringUtils.hasText(token)) {
+            return FIRST;
+        }
+
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed page cursor: " + token, e);
+        }
+
+        if (raw.length() <= UUID_LENGTH || raw.charAt(UUID_LENGTH) != ':') {
+            throw new IllegalArgumentException("Malformed page cursor: " + token);
+        }
+
+        return new PageCursor(raw.substring(UUID_LENGTH + 1), UUID.fromString(raw.substring(0, UUID_LENGTH)));
+    }
+}
@@ -0,0 +1,24 @@
+package fi.soininen.tatu.spring6restmvc.repositories;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Writes to beers that skip loading them. Each statement evicts only the beers it writes from the second-level
+ * cache; see {@link BeerCacheEviction}.
+ */
+public interface BeerBulkRepository {
+
+    /**
+     * Allocation as one conditional {@code UPDATE}: the row lock taken here is the only serialization between
+     * concurrent orders, and stock never goes negative. Returns 0 when the beer is unknown or short of stock. The
+     * version is bumped so ETags change.
+     */
+    int allocateInventory(UUID beerId, int quantity);
+
+    /**
+     * Deletes the beers and their {@code beer_category} rows without loading them. A beer that order lines refer to
+     * fails on the foreign key. Entity listeners do not run. Returns the number of beers deleted.
+     */
+    int deleteBeers(Collection<UUID> beerIds);
+}
@@ -0,0 +1,41 @@
+package fi.soininen.tatu.spring6restmvc.repositories;
+
+import fi.soininen.tatu.spring6restmvc.ids.TimeOrderedUuids;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public class BeerBulkRepositoryImpl implements BeerBulkRepository {
+
+    private static final String ALLOCATE_INVENTORY = "update beer " +
+            "set quantity_on_hand = quantity_on_hand - :quantity, version = version + 1 " +
+            "where id = :id and quantity_on_hand >= :quantity";
+
+    private static final String DELETE_BEER_CATEGORIES = "delete from beer_category where beer_id in (:ids)";
+
+    private static final String DELETE_BEERS = "delete from beer where id in (:ids)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int allocateInventory(UUID beerId, int quantity) {
+        return BeerCacheEviction.executeUpdate(entityManager, List.of(beerId), Set.of(BeerCacheEviction.BEER_TABLE),
+                ALLOCATE_INVENTORY, Map.of("id", TimeOrderedUuids.toBytes(beerId), "quantity", quantity));
+    }
+
+    @Override
+    public int deleteBeers(Collection<UUID> beerIds) {
+        Map<String, List<byte[]>> ids = Map.of("ids", beerIds.stream().map(TimeOrderedUuids::toBytes).toList());
+
+        BeerCacheEviction.executeUpdate(entityManager, beerIds, Set.of(BeerCacheEviction.BEER_CATEGORY_TABLE),
+                DELETE_BEER_CATEGORIES, ids);
+        return BeerCacheEviction.executeUpdate(entityManager, beerIds, Set.of(BeerCacheEviction.BEER_TABLE),
+                DELETE_BEERS, ids);
+    }
+}
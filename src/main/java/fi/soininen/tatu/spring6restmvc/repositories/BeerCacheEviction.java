@@ -0,0 +1,87 @@
+package fi.soininen.tatu.spring6restmvc.repositories;
+
+import fi.soininen.tatu.spring6restmvc.entities.Beer;
+import jakarta.persistence.EntityManager;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.NativeQuery;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Runs native statements that write beers without loading them, keeping the second-level cache in step one beer
+ * at a time. For a JPQL or Criteria bulk statement, or a native one synchronized on {@link Beer}, Hibernate empties
+ * the whole {@code beer} region and the collection regions beers take part in, so every order would cost every
+ * cached beer.
+ * <p>
+ * The statements here synchronize on no entity instead. Pending changes to the tables are flushed as Hibernate
+ * would have, and the written beers are evicted twice: at once, and again when the transaction completes, so an
+ * entry that a concurrent reader put back from the old row does not outlive the commit. The tables' query spaces
+ * are invalidated with the same two steps, which keeps cached queries such as the style listing from going stale.
+ */
+final class BeerCacheEviction {
+
+    static final String BEER_TABLE = "beer";
+    static final String BEER_CATEGORY_TABLE = "beer_category";
+
+    private static final String CATEGORIES_ROLE = Beer.class.getName() + ".categories";
+
+    // No entity is mapped to this space, so Hibernate neither flushes nor evicts on the statement's behalf
+    private static final String NO_ENTITY_SPACE = "";
+
+    private BeerCacheEviction() {
+    }
+
+    /**
+     * Executes {@code sql}, which writes {@code tables} and only the rows of {@code beerIds}, and evicts those beers:
+     * their entities for {@code beer}, their category collections for {@code beer_category}. Collection values are
+     * bound as lists.
+     */
+    static int executeUpdate(EntityManager entityManager, Collection<UUID> beerIds, Set<String> tables,
+                             String sql, Map<String, ?> parameters) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        session.autoFlushIfRequired(tables);
+
+        NativeQuery<?> query = session.createNativeQuery(sql).addSynchronizedQuerySpace(NO_ENTITY_SPACE);
+        parameters.forEach((name, value) -> {
+            if (value instanceof Collection<?> values) {
+                query.setParameterList(name, values);
+            } else {
+                query.setParameter(name, value);
+            }
+        });
+        int updated = query.executeUpdate();
+
+        evict(session, beerIds, tables);
+        return updated;
+    }
+
+    private static void evict(SessionImplementor session, Collection<UUID> beerIds, Set<String> tables) {
+        CacheImplementor cache = session.getFactory().getCache();
+        String[] spaces = tables.toArray(String[]::new);
+        // Copied: callers may reuse their collection for the next statement before this one commits
+        Set<UUID> ids = Set.copyOf(beerIds);
+
+        evictEntries(cache, ids, tables);
+        cache.getTimestampsCache().preInvalidate(spaces, session);
+
+        session.getActionQueue().registerProcess((success, completed) -> {
+            evictEntries(cache, ids, tables);
+            cache.getTimestampsCache().invalidate(spaces, completed);
+        });
+    }
+
+    private static void evictEntries(CacheImplementor cache, Set<UUID> ids, Set<String> tables) {
+        for (UUID id : ids) {
+            if (tables.contains(BEER_TABLE)) {
+                cache.evictEntityData(Beer.class, id);
+            }
+            if (tables.contains(BEER_CATEGORY_TABLE)) {
+                cache.evictCollectionData(CATEGORIES_ROLE, id);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package fi.soininen.tatu.spring6restmvc.repositories;
+
+import fi.soininen.tatu.spring6restmvc.model.BeerDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Read-only listing queries that select {@link BeerDto} columns directly, so no {@code Beer} entity, association
+ * proxy or persistence-context snapshot is created.
+ */
+public interface BeerDtoRepository {
+
+    /**
+     * Same filters as the derived {@code findAllBy...} queries; a blank name or null style is not filtered on.
+     * Without inventory the {@code quantity_on_hand} column is not selected at all.
+     */
+    Page<BeerDto> findBeerDtos(String beerName, BeerStyle beerStyle, boolean showInventory, Pageable pageable);
+
+    /**
+     * Beers with the given ids, in no particular order.
+     */
+    List<BeerDto> findBeerDtosByIdIn(Collection<UUID> ids, boolean showInventory);
+
+    /**
+     * Every beer, ordered by id, read from an open cursor {@code fetchSize} rows at a time. The caller must
+     * close the stream inside the transaction that opened it.
+     */
+    Stream<BeerDto> streamBeerDtos(int fetchSize);
+}
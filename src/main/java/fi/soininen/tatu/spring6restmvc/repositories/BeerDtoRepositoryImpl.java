@@ -0,0 +1,159 @@
+package fi.soininen.tatu.spring6restmvc.repositories;
+
+import fi.soininen.tatu.spring6restmvc.entities.Beer;
+import fi.soininen.tatu.spring6restmvc.model.BeerDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public class BeerDtoRepositoryImpl implements BeerDtoRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<BeerDto> findBeerDtos(String beerName, BeerStyle beerStyle, boolean showInventory, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Beer> beer = query.from(Beer.class);
+        query.multiselect(dtoColumns(beer, showInventory))
+                .where(filters(cb, beer, beerName, beerStyle))
+                .orderBy(QueryUtils.toOrders(pageable.getSort(), beer, cb));
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (!StringUtils.hasText(beerName)) {
+            // Unfiltered and style-only pages have a small key space; cache them until the next beer write
+            typedQuery.setHint(AvailableHints.HINT_CACHEABLE, true);
+        }
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+
+        List<BeerDto> content = typedQuery.getResultList().stream()
+                .map(tuple -> toBeerDto(tuple, showInventory))
+                .toList();
+
+        // The count only runs when the page alone cannot tell the total
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(beerName, beerStyle));
+    }
+
+    @Override
+    public List<BeerDto> findBeerDtosByIdIn(Collection<UUID> ids, boolean showInventory) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Beer> beer = query.from(Beer.class);
+        query.multiselect(dtoColumns(beer, showInventory))
+                .where(beer.get("id").in(ids));
+
+        return entityManager.createQuery(query).getResultList().stream()
+                .map(tuple -> toBeerDto(tuple, showInventory))
+                .toList();
+    }
+
+    @Override
+    public Stream<BeerDto> streamBeerDtos(int fetchSize) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Beer> beer = query.from(Beer.class);
+        query.multiselect(dtoColumns(beer, true))
+                .orderBy(cb.asc(beer.get("id")));
+
+        return entityManager.createQuery(query)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream()
+                .map(tuple -> toBeerDto(tuple, true));
+    }
+
+    private long count(String beerName, BeerStyle beerStyle) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Beer> beer = query.from(Beer.class);
+        query.select(cb.count(beer))
+                .where(filters(cb, beer, beerName, beerStyle));
+
+        TypedQuery<Long> typedQuery = entityManager.createQuery(query);
+        if (!StringUtils.hasText(beerName)) {
+            typedQuery.setHint(AvailableHints.HINT_CACHEABLE, true);
+        }
+
+        return typedQuery.getSingleResult();
+    }
+
+    private static Predicate filters(CriteriaBuilder cb, Root<Beer> beer, String beerName, BeerStyle beerStyle) {
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (StringUtils.hasText(beerName)) {
+            predicates.add(cb.like(cb.upper(beer.get("beerName")), cb.upper(cb.literal("%" + beerName + "%"))));
+        }
+
+        if (beerStyle != null) {
+            predicates.add(cb.equal(beer.get("beerStyle"), beerStyle));
+        }
+
+        return cb.and(predicates.toArray(new Predicate[0]));
+    }
+
+    private static List<Selection<?>> dtoColumns(Root<Beer> beer, boolean showInventory) {
+        List<Selection<?>> columns = new ArrayList<>(List.of(
+                beer.get("id").alias("id"),
+                beer.get("version").alias("version"),
+                beer.get("beerName").alias("beerName"),
+                beer.get("beerStyle").alias("beerStyle"),
+                beer.get("upc").alias("upc"),
+                beer.get("price").alias("price"),
+                beer.get("createdDate").alias("createdDate"),
+                beer.get("updatedDate").alias("updatedDate")));
+
+        if (showInventory) {
+            Path<Integer> quantityOnHand = beer.get("quantityOnHand");
+            columns.add(quantityOnHand.alias("quantityOnHand"));
+        }
+
+        return columns;
+    }
+
+    private static BeerDto toBeerDto(Tuple tuple, boolean showInventory) {
+        return BeerDto.builder()
+                .id(tuple.get("id", UUID.class))
+                .version(tuple.get("version", Integer.class))
+                .beerName(tuple.get("beerName", String.class))
+                .beerStyle(tuple.get("beerStyle", BeerStyle.class))
+                .upc(tuple.get("upc", String.class))
+                .price(tuple.get("price", BigDecimal.class))
+                .quantityOnHand(showInventory ? tuple.get("quantityOnHand", Integer.class) : null)
+                .createdDate(tuple.get("createdDate", LocalDateTime.class))
+                .updatedDate(tuple.get("updatedDate", LocalDateTime.class))
+                .build();
+    }
+}
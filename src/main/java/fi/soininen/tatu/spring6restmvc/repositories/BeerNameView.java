@@ -0,0 +1,14 @@
+package fi.soininen.tatu.spring6restmvc.repositories;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * Id and name only, read through a JPQL constructor expression so no entity or projection proxy is created.
+ */
+@Value
+public class BeerNameView {
+    UUID id;
+    String beerName;
+}
@@ -1,9 +1,35 @@
 package fi.soininen.tatu.spring6restmvc.repositories;
 
 import fi.soininen.tatu.spring6restmvc.entities.BeerOrder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface BeerOrderRepository extends JpaRepository<BeerOrder, UUID> {
+
+    // The whole order in one statement: customer, shipment, lines and the beer of every line
+    @EntityGraph(attributePaths = {"customer", "beerOrderShipment", "beerOrderLines", "beerOrderLines.beer"})
+    Optional<BeerOrder> findWithLinesById(UUID id);
+
+    // Pages fetch only the to-one associations; joining the lines would make Hibernate page in memory.
+    // Load the lines of the page afterwards with fetchLines.
+
+    @EntityGraph(attributePaths = {"customer", "beerOrderShipment"})
+    Page<BeerOrder> findAllBy(Pageable pageable);
+
+    @EntityGraph(attributePaths = {"customer", "beerOrderShipment"})
+    Page<BeerOrder> findAllByCustomerId(UUID customerId, Pageable pageable);
+
+    // Initializes the line collections of orders already in the persistence context, with their beers
+    @Query("select distinct o from BeerOrder o left join fetch o.beerOrderLines l left join fetch l.beer " +
+            "where o.id in :ids")
+    List<BeerOrder> fetchLines(@Param("ids") Collection<UUID> ids);
 }
@@ -0,0 +1,15 @@
+package fi.soininen.tatu.spring6restmvc.repositories;
+
+import fi.soininen.tatu.spring6restmvc.model.BeerPatchDto;
+
+import java.util.UUID;
+
+public interface BeerPatchRepository {
+
+    /**
+     * One {@code UPDATE} of the fields present in {@code patch}, conditional on the id and the version, which it
+     * increments. Nothing is loaded first. Returns the number of rows updated: 0 when the beer is missing or has
+     * moved past {@code expectedVersion}.
+     */
+    int patchBeer(UUID beerId, int expectedVersion, BeerPatchDto patch);
+}
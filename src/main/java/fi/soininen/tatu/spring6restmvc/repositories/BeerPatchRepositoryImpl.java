@@ -0,0 +1,61 @@
+package fi.soininen.tatu.spring6restmvc.repositories;
+
+import fi.soininen.tatu.spring6restmvc.ids.TimeOrderedUuids;
+import fi.soininen.tatu.spring6restmvc.model.BeerPatchDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+public class BeerPatchRepositoryImpl implements BeerPatchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int patchBeer(UUID beerId, int expectedVersion, BeerPatchDto patch) {
+        StringJoiner assignments = new StringJoiner(", ");
+        Map<String, Object> parameters = new HashMap<>();
+
+        if (patch.getBeerName() != null) {
+            assign(assignments, parameters, "beer_name", patch.getBeerName());
+        }
+        if (patch.getBeerStyle() != null) {
+            // Mapped as an ordinal
+            assign(assignments, parameters, "beer_style", patch.getBeerStyle().ordinal());
+        }
+        if (patch.getUpc() != null) {
+            assign(assignments, parameters, "upc", patch.getUpc());
+        }
+        if (patch.getQuantityOnHand() != null) {
+            assign(assignments, parameters, "quantity_on_hand", patch.getQuantityOnHand());
+        }
+        if (patch.getPrice() != null) {
+            assign(assignments, parameters, "price", patch.getPrice());
+        }
+
+        // Bulk updates skip @Version and @UpdateTimestamp, so both are maintained here
+        assign(assignments, parameters, "updated_date", LocalDateTime.now());
+        parameters.put("id", TimeOrderedUuids.toBytes(beerId));
+        parameters.put("expected_version", expectedVersion);
+
+        String sql = "update beer set " + assignments + ", version = version + 1 " +
+                "where id = :id and version = :expected_version";
+
+        return BeerCacheEviction.executeUpdate(entityManager, List.of(beerId), Set.of(BeerCacheEviction.BEER_TABLE),
+                sql, parameters);
+    }
+
+    // Parameters are named after their columns, which are fixed above; only values come from the patch
+    private static void assign(StringJoiner assignments, Map<String, Object> parameters, String column,
+                               Object value) {
+        assignments.add(column + " = :" + column);
+        parameters.put(column, value);
+    }
+}
@@ -2,20 +2,89 @@ package fi.soininen.tatu.spring6restmvc.repositories;
 
 import fi.soininen.tatu.spring6restmvc.entities.Beer;
 import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
-public interface BeerRepository extends JpaRepository<Beer, UUID> {
+public interface BeerRepository extends JpaRepository<Beer, UUID>, BeerDtoRepository, BeerPatchRepository,
+        BeerBulkRepository {
 
     Page<Beer> findAll(Pageable pageable);
 
+    @Query("select new fi.soininen.tatu.spring6restmvc.repositories.BeerNameView(b.id, b.beerName) " +
+            "from Beer b where b.id > :lastId order by b.id")
+    List<BeerNameView> findBeerNamesAfter(@Param("lastId") UUID lastId, Pageable pageable);
+
     Page<Beer> findAllByBeerNameIsLikeIgnoreCase(String beerName, Pageable pageable);
 
+    // Style filters have few distinct values and are read constantly; results live in the query cache
+    // until the next write to the beer table
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     Page<Beer> findAllByBeerStyle(BeerStyle beerStyle, Pageable pageable);
 
     Page<Beer> findAllByBeerNameIsLikeIgnoreCaseAndBeerStyle(String beerName, BeerStyle beerStyle, Pageable pageable);
 
+    // Slice variants fetch one extra row instead of running a count query
+
+    Slice<Beer> findSliceBy(Pageable pageable);
+
+    Slice<Beer> findSliceByBeerNameIsLikeIgnoreCase(String beerName, Pageable pageable);
+
+    Slice<Beer> findSliceByBeerStyle(BeerStyle beerStyle, Pageable pageable);
+
+    Slice<Beer> findSliceByBeerNameIsLikeIgnoreCaseAndBeerStyle(String beerName, BeerStyle beerStyle, Pageable pageable);
+
+    long countByBeerNameIsLikeIgnoreCase(String beerName);
+
+    long countByBeerStyle(BeerStyle beerStyle);
+
+    long countByBeerNameIsLikeIgnoreCaseAndBeerStyle(String beerName, BeerStyle beerStyle);
+
+    // Keyset (seek) pagination: rows strictly after (lastBeerName, lastId) in (beerName, id) order.
+    // Pass an unsorted Pageable; it only carries the limit, so no count query is issued.
+
+    @Query("select b from Beer b " +
+            "where b.beerName > :lastBeerName or (b.beerName = :lastBeerName and b.id > :lastId) " +
+            "order by b.beerName, b.id")
+    List<Beer> findAllAfter(@Param("lastBeerName") String lastBeerName, @Param("lastId") UUID lastId,
+                            Pageable pageable);
+
+    @Query("select b from Beer b " +
+            "where upper(b.beerName) like upper(:beerName) " +
+            "and (b.beerName > :lastBeerName or (b.beerName = :lastBeerName and b.id > :lastId)) " +
+            "order by b.beerName, b.id")
+    List<Beer> findAllByBeerNameAfter(@Param("beerName") String beerName,
+                                      @Param("lastBeerName") String lastBeerName, @Param("lastId") UUID lastId,
+                                      Pageable pageable);
+
+    @Query("select b from Beer b " +
+            "where b.beerStyle = :beerStyle " +
+            "and (b.beerName > :lastBeerName or (b.beerName = :lastBeerName and b.id > :lastId)) " +
+            "order by b.beerName, b.id")
+    List<Beer> findAllByBeerStyleAfter(@Param("beerStyle") BeerStyle beerStyle,
+                                       @Param("lastBeerName") String lastBeerName, @Param("lastId") UUID lastId,
+                                       Pageable pageable);
+
+    @Query("select b from Beer b " +
+            "where upper(b.beerName) like upper(:beerName) and b.beerStyle = :beerStyle " +
+            "and (b.beerName > :lastBeerName or (b.beerName = :lastBeerName and b.id > :lastId)) " +
+            "order by b.beerName, b.id")
+    List<Beer> findAllByBeerNameAndBeerStyleAfter(@Param("beerName") String beerName,
+                                                  @Param("beerStyle") BeerStyle beerStyle,
+                                                  @Param("lastBeerName") String lastBeerName,
+                                                  @Param("lastId") UUID lastId,
+                                                  Pageable pageable);
+
+    @Query("select distinct l.beer.id from BeerOrderLine l where l.beer.id in :beerIds")
+    List<UUID> findOrderedBeerIds(@Param("beerIds") Collection<UUID> beerIds);
 }
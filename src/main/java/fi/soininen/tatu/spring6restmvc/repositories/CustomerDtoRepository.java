@@ -0,0 +1,35 @@
+package fi.soininen.tatu.spring6restmvc.repositories;
+
+import fi.soininen.tatu.spring6restmvc.model.CustomerDto;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Read-only customer listing queries that select {@link CustomerDto} columns directly, so listing never attaches
+ * {@code Customer} entities or their order collections to the persistence context.
+ */
+public interface CustomerDtoRepository {
+
+    /**
+     * A blank name or email is not filtered on. The name is a prefix match and the email an exact match, so both
+     * can be answered from {@code ix_customer_name_id} and {@code ix_customer_email}. The name match ignores case
+     * under MySQL's default {@code utf8mb4_0900_ai_ci} collation.
+     */
+    Page<CustomerDto> findCustomerDtos(String name, String email, Pageable pageable);
+
+    /**
+     * At most {@code limit} customers ordered by id, starting after {@code lastId}. Filters as in
+     * {@link #findCustomerDtos}.
+     */
+    List<CustomerDto> findCustomerDtosAfter(String name, String email, UUID lastId, int limit);
+
+    /**
+     * Every customer, ordered by id, read from an open cursor {@code fetchSize} rows at a time. The caller must
+     * close the stream inside the transaction that opened it.
+     */
+    Stream<CustomerDto> streamCustomerDtos(int fetchSize);
+}
@@ -0,0 +1,150 @@
+package fi.soininen.tatu.spring6restmvc.repositories;
+
+import fi.soininen.tatu.spring6restmvc.entities.Customer;
+import fi.soininen.tatu.spring6restmvc.model.CustomerDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public class CustomerDtoRepositoryImpl implements CustomerDtoRepository {
+
+    // A backslash would itself need escaping inside a MySQL string literal
+    private static final char LIKE_ESCAPE = '!';
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<CustomerDto> findCustomerDtos(String name, String email, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Customer> customer = query.from(Customer.class);
+        query.multiselect(dtoColumns(customer))
+                .where(filters(cb, customer, name, email))
+                .orderBy(QueryUtils.toOrders(pageable.getSort(), customer, cb));
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+
+        List<CustomerDto> content = typedQuery.getResultList().stream()
+                .map(CustomerDtoRepositoryImpl::toCustomerDto)
+                .toList();
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(name, email));
+    }
+
+    @Override
+    public List<CustomerDto> findCustomerDtosAfter(String name, String email, UUID lastId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Customer> customer = query.from(Customer.class);
+        Predicate afterLast = cb.greaterThan(customer.<UUID>get("id"), lastId);
+        query.multiselect(dtoColumns(customer))
+                .where(cb.and(filters(cb, customer, name, email), afterLast))
+                .orderBy(cb.asc(customer.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList().stream()
+                .map(CustomerDtoRepositoryImpl::toCustomerDto)
+                .toList();
+    }
+
+    @Override
+    public Stream<CustomerDto> streamCustomerDtos(int fetchSize) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Customer> customer = query.from(Customer.class);
+        query.multiselect(dtoColumns(customer))
+                .orderBy(cb.asc(customer.get("id")));
+
+        return entityManager.createQuery(query)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream()
+                .map(CustomerDtoRepositoryImpl::toCustomerDto);
+    }
+
+    private long count(String name, String email) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Customer> customer = query.from(Customer.class);
+        query.select(cb.count(customer))
+                .where(filters(cb, customer, name, email));
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static Predicate filters(CriteriaBuilder cb, Root<Customer> customer, String name, String email) {
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (StringUtils.hasText(name)) {
+            // A prefix without upper() keeps the predicate sargable; MySQL's default collation ignores case anyway
+            predicates.add(cb.like(customer.get("name"), escapeLike(name) + "%", LIKE_ESCAPE));
+        }
+
+        if (StringUtils.hasText(email)) {
+            predicates.add(cb.equal(customer.get("email"), email));
+        }
+
+        return cb.and(predicates.toArray(new Predicate[0]));
+    }
+
+    private static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+
+        for (char c : value.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+
+        return escaped.toString();
+    }
+
+    private static List<Selection<?>> dtoColumns(Root<Customer> customer) {
+        return List.of(
+                customer.get("id").alias("id"),
+                customer.get("version").alias("version"),
+                customer.get("name").alias("name"),
+                customer.get("email").alias("email"),
+                customer.get("createdDate").alias("createdDate"),
+                customer.get("updatedDate").alias("updatedDate"));
+    }
+
+    private static CustomerDto toCustomerDto(Tuple tuple) {
+        return CustomerDto.builder()
+                .id(tuple.get("id", UUID.class))
+                .version(tuple.get("version", Integer.class))
+                .name(tuple.get("name", String.class))
+                .email(tuple.get("email", String.class))
+                .createdDate(tuple.get("createdDate", LocalDateTime.class))
+                .updatedDate(tuple.get("updatedDate", LocalDateTime.class))
+                .build();
+    }
+}
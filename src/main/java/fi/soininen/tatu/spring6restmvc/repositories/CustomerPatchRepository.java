@@ -0,0 +1,15 @@
+package fi.soininen.tatu.spring6restmvc.repositories;
+
+import fi.soininen.tatu.spring6restmvc.model.CustomerPatchDto;
+
+import java.util.UUID;
+
+public interface CustomerPatchRepository {
+
+    /**
+     * One {@code UPDATE} of the fields present in {@code patch}, conditional on the id and the version, which it
+     * increments. Returns the number of rows updated: 0 when the customer is missing or has moved past
+     * {@code expectedVersion}.
+     */
+    int patchCustomer(UUID customerId, int expectedVersion, CustomerPatchDto patch);
+}
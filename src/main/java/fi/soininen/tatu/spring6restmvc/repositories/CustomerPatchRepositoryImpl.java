@@ -0,0 +1,42 @@
+package fi.soininen.tatu.spring6restmvc.repositories;
+
+import fi.soininen.tatu.spring6restmvc.entities.Customer;
+import fi.soininen.tatu.spring6restmvc.model.CustomerPatchDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public class CustomerPatchRepositoryImpl implements CustomerPatchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int patchCustomer(UUID customerId, int expectedVersion, CustomerPatchDto patch) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaUpdate<Customer> update = cb.createCriteriaUpdate(Customer.class);
+        Root<Customer> customer = update.from(Customer.class);
+
+        if (patch.getName() != null) {
+            update.set(customer.<String>get("name"), patch.getName());
+        }
+        if (patch.getEmail() != null) {
+            update.set(customer.<String>get("email"), patch.getEmail());
+        }
+
+        // Bulk updates skip @Version and @UpdateTimestamp, so both are maintained here
+        Path<Integer> version = customer.get("version");
+        update.set(version, cb.sum(version, 1))
+                .set(customer.<LocalDateTime>get("updatedDate"), LocalDateTime.now())
+                .where(cb.equal(customer.get("id"), customerId), cb.equal(version, expectedVersion));
+
+        return entityManager.createQuery(update).executeUpdate();
+    }
+}
@@ -2,8 +2,17 @@ package fi.soininen.tatu.spring6restmvc.repositories;
 
 import fi.soininen.tatu.spring6restmvc.entities.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.UUID;
 
-public interface CustomerRepository extends JpaRepository<Customer, UUID> {
+public interface CustomerRepository extends JpaRepository<Customer, UUID>, CustomerDtoRepository,
+        CustomerPatchRepository {
+
+    // Deletes without loading the customer; one with orders fails on the foreign key
+    @Modifying
+    @Query("delete from Customer c where c.id = :customerId")
+    int deleteCustomer(@Param("customerId") UUID customerId);
 }
@@ -0,0 +1,7 @@
+package fi.soininen.tatu.spring6restmvc.repositories;
+
+import fi.soininen.tatu.spring6restmvc.entities.DataImport;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DataImportRepository extends JpaRepository<DataImport, String> {
+}
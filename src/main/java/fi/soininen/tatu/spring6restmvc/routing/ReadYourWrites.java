@@ -0,0 +1,30 @@
+package fi.soininen.tatu.spring6restmvc.routing;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Per-request stickiness to the primary: once a request has written, its later reads must see the write, so
+ * they no longer go to a replica. Kept as a request attribute, so it ends with the request; outside a web
+ * request there is nothing to stick to.
+ */
+public final class ReadYourWrites {
+
+    static final String WROTE_ATTRIBUTE = ReadYourWrites.class.getName() + ".WROTE";
+
+    private ReadYourWrites() {
+    }
+
+    static void markWritten() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(WROTE_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    public static boolean wroteInThisRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null
+                && Boolean.TRUE.equals(attributes.getAttribute(WROTE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST));
+    }
+}
@@ -0,0 +1,80 @@
+package fi.soininen.tatu.spring6restmvc.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Writes a heartbeat to the primary and reads it back from every replica. A replica is available while its copy
+ * of the heartbeat is no older than {@code maxLag}. The measured lag includes up to one heartbeat interval, so it
+ * errs on the side of reading from the primary.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    static final int HEARTBEAT_ID = 1;
+
+    private final JdbcTemplate primary;
+    private final ReadWriteRoutingDataSource routingDataSource;
+    private final Duration maxLag;
+    private final Clock clock;
+
+    public ReplicaLagMonitor(DataSource primary, ReadWriteRoutingDataSource routingDataSource, Duration maxLag,
+                             Clock clock) {
+        this.primary = new JdbcTemplate(primary);
+        this.routingDataSource = routingDataSource;
+        this.maxLag = maxLag;
+        this.clock = clock;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.heartbeat-interval:PT1S}")
+    public void heartbeat() {
+        try {
+            writeHeartbeat();
+        } catch (RuntimeException e) {
+            log.warn("Could not write the replica heartbeat to the primary: {}", e.getMessage());
+        }
+        checkReplicas();
+    }
+
+    void writeHeartbeat() {
+        Timestamp now = Timestamp.from(clock.instant());
+        if (primary.update("update replica_heartbeat set beat = ? where id = ?", now, HEARTBEAT_ID) == 0) {
+            primary.update("insert into replica_heartbeat (id, beat) values (?, ?)", HEARTBEAT_ID, now);
+        }
+    }
+
+    void checkReplicas() {
+        Instant now = clock.instant();
+        for (ReadWriteRoutingDataSource.Replica replica : routingDataSource.getReplicas()) {
+            try {
+                List<Timestamp> beats = new JdbcTemplate(replica.getDataSource()).queryForList(
+                        "select beat from replica_heartbeat where id = ?", Timestamp.class, HEARTBEAT_ID);
+                if (beats.isEmpty()) {
+                    replica.update(null, false);
+                    continue;
+                }
+
+                Duration lag = Duration.between(beats.get(0).toInstant(), now);
+                boolean available = lag.compareTo(maxLag) <= 0;
+                if (available != replica.isAvailable()) {
+                    log.info("{} is {} with a lag of {} ms", replica.getName(),
+                            available ? "available" : "behind", lag.toMillis());
+                }
+                replica.update(lag, available);
+            } catch (RuntimeException e) {
+                if (replica.isAvailable()) {
+                    log.warn("{} is unavailable: {}", replica.getName(), e.getMessage());
+                }
+                replica.update(null, false);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package fi.soininen.tatu.spring6restmvc.search;
+
+import fi.soininen.tatu.spring6restmvc.entities.Beer;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+/**
+ * Keeps {@link BeerNameTrigramIndex} in step with {@link Beer} writes. Changes are applied after commit, so a
+ * rolled back transaction never reaches the index. Hibernate creates this listener through the Spring bean
+ * container; contexts without the index (e.g. {@code @DataJpaTest}) simply skip it.
+ */
+@RequiredArgsConstructor
+public class BeerNameIndexListener {
+
+    private final ObjectProvider<BeerNameTrigramIndex> indexProvider;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Beer beer) {
+        String beerName = beer.getBeerName();
+        afterCommit(index -> index.put(beer.getId(), beerName));
+    }
+
+    @PostRemove
+    public void onRemove(Beer beer) {
+        afterCommit(index -> index.remove(beer.getId()));
+    }
+
+    private void afterCommit(Consumer<BeerNameTrigramIndex> change) {
+        BeerNameTrigramIndex index = indexProvider.getIfAvailable();
+        if (index == null) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.accept(index);
+                }
+            });
+        } else {
+            change.accept(index);
+        }
+    }
+}
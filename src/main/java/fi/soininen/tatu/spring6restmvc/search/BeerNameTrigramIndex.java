@@ -0,0 +1,379 @@
+package fi.soininen.tatu.spring6restmvc.search;
+
+import fi.soininen.tatu.spring6restmvc.ids.TimeOrderedUuids;
+import fi.soininen.tatu.spring6restmvc.repositories.BeerNameView;
+import fi.soininen.tatu.spring6restmvc.repositories.BeerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram inverted index over {@code Beer.beerName}, used to answer case-insensitive substring
+ * searches without a leading-wildcard LIKE scan.
+ * <p>
+ * Every indexed name gets an int ordinal. Posting lists hold ordinals in ascending order, so lookups are a merge
+ * intersection of the query's trigram lists followed by an exact {@code contains} check on the candidates.
+ * Renames and deletes tombstone the old ordinal; the index is rebuilt in place once tombstones outnumber live rows.
+ * <p>
+ * Names are folded and ordered by the database's {@link NameCollation} and ids in {@code binary(16)} order, so a
+ * page from the index holds the same beers in the same order as the SQL listing would.
+ * <p>
+ * The index lives in this JVM. It is loaded once when the application is ready and then follows the writes this
+ * instance commits; names written by another instance or straight to the database are not seen until a restart.
+ * That assumes a single application instance. Running several would need the index fed from a shared change
+ * stream, or name searches sent back to the database.
+ */
+@Slf4j
+@Component
+public class BeerNameTrigramIndex {
+
+    static final int GRAM = 3;
+    static final int LOAD_CHUNK_SIZE = 10_000;
+
+    private final BeerRepository beerRepository;
+    private final NameCollation collation;
+    private final Comparator<Integer> byNameAndId;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, IntList> postings = new HashMap<>();
+    private final Map<UUID, Integer> ordinalById = new HashMap<>();
+    private final BitSet dead = new BitSet();
+
+    /**
+     * Ids removed before the load finished; a chunk read just before the delete committed must not bring them back.
+     */
+    private final Set<UUID> removedWhileLoading = new HashSet<>();
+
+    private UUID[] ids = new UUID[1024];
+    private String[] names = new String[1024];
+    private String[] foldedNames = new String[1024];
+    private int nextOrdinal;
+    private int deadCount;
+
+    private volatile boolean ready;
+
+    @Autowired
+    public BeerNameTrigramIndex(BeerRepository beerRepository,
+                                @Value("${app.beer-name-index.collation:BINARY}") NameCollation collation) {
+        this.beerRepository = beerRepository;
+        this.collation = collation;
+
+        Comparator<String> nameOrder = collation.comparator();
+        this.byNameAndId = Comparator.<Integer, String>comparing(ordinal -> names[ordinal], nameOrder)
+                .thenComparing(ordinal -> ids[ordinal], TimeOrderedUuids.BINARY_ORDER);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        int loaded = 0;
+
+        // Read in id order, one chunk at a time, so the load never holds more than a chunk of rows
+        Pageable chunk = PageRequest.of(0, LOAD_CHUNK_SIZE);
+        UUID lastId = new UUID(0L, 0L);
+        List<BeerNameView> beers;
+
+        do {
+            beers = beerRepository.findBeerNamesAfter(lastId, chunk);
+
+            lock.writeLock().lock();
+            try {
+                // Names written by the entity listener while the chunk was read are newer; keep them, and keep
+                // beers deleted meanwhile out
+                beers.stream()
+                        .filter(beer -> !ordinalById.containsKey(beer.getId()))
+                        .filter(beer -> !removedWhileLoading.contains(beer.getId()))
+                        .forEach(beer -> doPut(beer.getId(), beer.getBeerName()));
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            loaded += beers.size();
+            if (!beers.isEmpty()) {
+                lastId = beers.get(beers.size() - 1).getId();
+            }
+        } while (beers.size() == LOAD_CHUNK_SIZE);
+
+        lock.writeLock().lock();
+        try {
+            removedWhileLoading.clear();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Beer name trigram index loaded {} names in {} ms", loaded, System.currentTimeMillis() - start);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Whether {@link #search} can answer this query. Shorter queries have no trigram to look up, and LIKE
+     * wildcards in the input keep their existing pattern semantics on the database path.
+     */
+    public boolean supports(String query) {
+        return ready && query != null && collation.fold(query).length() >= GRAM
+                && query.indexOf('%') < 0 && query.indexOf('_') < 0;
+    }
+
+    public void put(UUID id, String beerName) {
+        lock.writeLock().lock();
+        try {
+            removedWhileLoading.remove(id);
+            doPut(id, beerName);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID id) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                removedWhileLoading.add(id);
+            }
+            doRemove(id);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of all beers whose name contains {@code query} under the collation, ordered by (beerName, id).
+     */
+    public List<UUID> search(String query) {
+        return search(query, 0, Integer.MAX_VALUE).getContent();
+    }
+
+    public Page<UUID> search(String query, Pageable pageable) {
+        return search(query, pageable.getOffset(), pageable.getPageSize());
+    }
+
+    /**
+     * One page of {@link #search(String)} plus the total match count. Only the first {@code offset + limit}
+     * matches are ordered, with a bounded heap, so a first page of a broad query does not sort every match.
+     */
+    private Page<UUID> search(String query, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            int[] matches = matches(collation.fold(query));
+            int count = matches.length;
+            if (offset >= count) {
+                return new PageImpl<>(List.of(), Pageable.unpaged(), count);
+            }
+
+            int wanted = (int) Math.min((long) count, offset + limit);
+
+            List<Integer> ordered;
+            if (wanted == count) {
+                ordered = new ArrayList<>(count);
+                for (int ordinal : matches) {
+                    ordered.add(ordinal);
+                }
+            } else {
+                PriorityQueue<Integer> smallest = new PriorityQueue<>(wanted + 1, byNameAndId.reversed());
+                for (int ordinal : matches) {
+                    smallest.add(ordinal);
+                    if (smallest.size() > wanted) {
+                        smallest.poll();
+                    }
+                }
+                ordered = new ArrayList<>(smallest);
+            }
+            ordered.sort(byNameAndId);
+
+            List<UUID> page = ordered.subList((int) offset, wanted).stream()
+                    .map(ordinal -> ids[ordinal])
+                    .toList();
+
+            return new PageImpl<>(page, Pageable.unpaged(), count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int count(String query) {
+        lock.readLock().lock();
+        try {
+            return matches(collation.fold(query)).length;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Live ordinals whose folded name contains {@code folded}; callers hold the read lock.
+     */
+    private int[] matches(String folded) {
+        Set<String> grams = trigrams(folded);
+
+        IntList[] lists = new IntList[grams.size()];
+        int i = 0;
+        for (String gram : grams) {
+            IntList list = postings.get(gram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists[i++] = list;
+        }
+
+        Arrays.sort(lists, Comparator.comparingInt(IntList::size));
+
+        int[] candidates = Arrays.copyOf(lists[0].values, lists[0].size);
+        int count = candidates.length;
+        for (int l = 1; l < lists.length && count > 0; l++) {
+            count = intersect(candidates, count, lists[l]);
+        }
+
+        int kept = 0;
+        for (int c = 0; c < count; c++) {
+            int ordinal = candidates[c];
+            if (!dead.get(ordinal) && foldedNames[ordinal].contains(folded)) {
+                candidates[kept++] = ordinal;
+            }
+        }
+
+        return Arrays.copyOf(candidates, kept);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void doPut(UUID id, String beerName) {
+        Integer existing = ordinalById.get(id);
+        if (existing != null) {
+            if (names[existing].equals(beerName)) {
+                return;
+            }
+            doRemove(id);
+        }
+
+        int ordinal = nextOrdinal++;
+        if (ordinal == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            foldedNames = Arrays.copyOf(foldedNames, capacity);
+        }
+
+        String folded = collation.fold(beerName);
+        ids[ordinal] = id;
+        names[ordinal] = beerName;
+        foldedNames[ordinal] = folded;
+        ordinalById.put(id, ordinal);
+
+        for (String gram : trigrams(folded)) {
+            postings.computeIfAbsent(gram, key -> new IntList()).add(ordinal);
+        }
+    }
+
+    private void doRemove(UUID id) {
+        Integer ordinal = ordinalById.remove(id);
+        if (ordinal != null) {
+            dead.set(ordinal);
+            names[ordinal] = null;
+            foldedNames[ordinal] = null;
+            deadCount++;
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (deadCount <= ordinalById.size() || deadCount < 1024) {
+            return;
+        }
+
+        UUID[] oldIds = ids;
+        String[] oldNames = names;
+        int oldCount = nextOrdinal;
+
+        postings.clear();
+        ordinalById.clear();
+        dead.clear();
+        ids = new UUID[Math.max(1024, oldIds.length / 2)];
+        names = new String[ids.length];
+        foldedNames = new String[ids.length];
+        nextOrdinal = 0;
+        deadCount = 0;
+
+        for (int ordinal = 0; ordinal < oldCount; ordinal++) {
+            if (oldNames[ordinal] != null) {
+                doPut(oldIds[ordinal], oldNames[ordinal]);
+            }
+        }
+    }
+
+    /**
+     * Intersects the first {@code count} entries of {@code candidates} with {@code list} in place; both are sorted.
+     */
+    private static int intersect(int[] candidates, int count, IntList list) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < list.size; i++) {
+            int value = candidates[i];
+            while (j < list.size && list.values[j] < value) {
+                j++;
+            }
+            if (j < list.size && list.values[j] == value) {
+                candidates[kept++] = value;
+            }
+        }
+        return kept;
+    }
+
+    static Set<String> trigrams(String folded) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= folded.length(); i++) {
+            grams.add(folded.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package fi.soininen.tatu.spring6restmvc.search;
+
+import java.text.Collator;
+import java.text.Normalizer;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * How the database compares {@code beer.beer_name}, so that {@link BeerNameTrigramIndex} matches and orders names
+ * the way the SQL listings do ({@code upper(beer_name) like upper(?)}, {@code order by beer_name, id}) and pages
+ * and cursors from either path line up. Set with {@code app.beer-name-index.collation}.
+ */
+public enum NameCollation {
+
+    /**
+     * Code unit order, case-insensitive matching through {@code upper()}: H2's default and MySQL {@code _bin}
+     * collations.
+     */
+    BINARY {
+        @Override
+        public Comparator<String> comparator() {
+            return Comparator.naturalOrder();
+        }
+
+        @Override
+        public String fold(String value) {
+            return value.toUpperCase(Locale.ROOT);
+        }
+    },
+
+    /**
+     * Accents and case are ignored when matching and ordering: MySQL's default {@code utf8mb4_0900_ai_ci}. The
+     * root-locale collator at primary strength follows the same Unicode collation algorithm for Latin names.
+     */
+    ACCENT_AND_CASE_INSENSITIVE {
+        @Override
+        public Comparator<String> comparator() {
+            Collator collator = Collator.getInstance(Locale.ROOT);
+            collator.setStrength(Collator.PRIMARY);
+            collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+            return collator::compare;
+        }
+
+        @Override
+        public String fold(String value) {
+            String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+            return COMBINING_MARKS.matcher(decomposed).replaceAll("").toUpperCase(Locale.ROOT);
+        }
+    };
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    /**
+     * Order of names in {@code order by beer_name}.
+     */
+    public abstract Comparator<String> comparator();
+
+    /**
+     * Folds a name or query so that plain substring matching agrees with the database's {@code like}.
+     */
+    public abstract String fold(String value);
+}
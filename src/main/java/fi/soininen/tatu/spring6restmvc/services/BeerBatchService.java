@@ -0,0 +1,17 @@
+package fi.soininen.tatu.spring6restmvc.services;
+
+import fi.soininen.tatu.spring6restmvc.model.BeerBatchResult;
+import fi.soininen.tatu.spring6restmvc.model.BeerDto;
+
+import java.util.Iterator;
+import java.util.List;
+
+public interface BeerBatchService {
+
+    /**
+     * Creates beers without an id and updates beers with one, in chunks that each commit on their own. A failing
+     * item is reported in its result and does not stop the rest of the batch. An item the iterator fails to read
+     * ends the batch: the items before it are still written and it is reported as the last, invalid result.
+     */
+    List<BeerBatchResult> saveBeers(Iterator<BeerDto> beers);
+}
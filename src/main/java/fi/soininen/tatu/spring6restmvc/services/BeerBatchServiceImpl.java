@@ -0,0 +1,195 @@
+package fi.soininen.tatu.spring6restmvc.services;
+
+import fi.soininen.tatu.spring6restmvc.config.CacheConfig;
+import fi.soininen.tatu.spring6restmvc.entities.Beer;
+import fi.soininen.tatu.spring6restmvc.mappers.BeerMapper;
+import fi.soininen.tatu.spring6restmvc.model.BeerBatchResult;
+import fi.soininen.tatu.spring6restmvc.model.BeerDto;
+import fi.soininen.tatu.spring6restmvc.repositories.BeerRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes a batch one chunk per transaction. Inside a chunk every insert and update is queued in the persistence
+ * context and flushed once, so Hibernate sends them as JDBC batches ({@code hibernate.jdbc.batch_size}) grouped
+ * by statement ({@code order_inserts} / {@code order_updates}).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BeerBatchServiceImpl implements BeerBatchService {
+
+    static final int CHUNK_SIZE = 500;
+
+    private final BeerRepository beerRepository;
+    private final BeerMapper beerMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.BEER_COUNT_CACHE, allEntries = true)
+    public List<BeerBatchResult> saveBeers(Iterator<BeerDto> beers) {
+        List<BeerBatchResult> results = new ArrayList<>();
+        List<BeerDto> chunk = new ArrayList<>(CHUNK_SIZE);
+        int index = 0;
+        BeerBatchResult unreadable = null;
+
+        while (true) {
+            BeerDto beer;
+            try {
+                if (!beers.hasNext()) {
+                    break;
+                }
+                beer = beers.next();
+            } catch (RuntimeException e) {
+                // Earlier chunks have committed, so the batch ends here and reports how far it got
+                log.warn("Beer batch item {} could not be read: {}", index + chunk.size(), e.getMessage());
+                unreadable = BeerBatchResult.builder()
+                        .index(index + chunk.size())
+                        .status(BeerBatchResult.Status.INVALID)
+                        .errors(Map.of("item", String.valueOf(e.getMessage())))
+                        .build();
+                break;
+            }
+
+            chunk.add(beer);
+            if (chunk.size() == CHUNK_SIZE) {
+                results.addAll(saveChunk(index, chunk));
+                index += chunk.size();
+                chunk.clear();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            results.addAll(saveChunk(index, chunk));
+        }
+        if (unreadable != null) {
+            results.add(unreadable);
+        }
+
+        return results;
+    }
+
+    private List<BeerBatchResult> saveChunk(int firstIndex, List<BeerDto> chunk) {
+        try {
+            return transactionTemplate.execute(status -> writeChunk(firstIndex, chunk));
+        } catch (RuntimeException e) {
+            // The chunk rolled back as a whole; items rejected up front still say why
+            log.warn("Beer batch chunk at {} failed: {}", firstIndex, e.getMessage());
+
+            List<BeerBatchResult> results = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                BeerDto beer = chunk.get(i);
+                Map<String, String> errors = validate(beer);
+
+                results.add(BeerBatchResult.builder()
+                        .index(firstIndex + i)
+                        .id(beer.getId())
+                        .status(errors.isEmpty() ? BeerBatchResult.Status.FAILED : BeerBatchResult.Status.INVALID)
+                        .errors(errors.isEmpty() ? Map.of("batch", String.valueOf(e.getMessage())) : errors)
+                        .build());
+            }
+            return results;
+        }
+    }
+
+    private List<BeerBatchResult> writeChunk(int firstIndex, List<BeerDto> chunk) {
+        // All updated beers of the chunk are loaded with one query
+        Set<UUID> updateIds = chunk.stream()
+                .map(BeerDto::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Map<UUID, Beer> existing = updateIds.isEmpty() ? Map.of() : beerRepository.findAllById(updateIds).stream()
+                .collect(Collectors.toMap(Beer::getId, Function.identity()));
+
+        List<Beer> written = new ArrayList<>(chunk.size());
+        List<BeerBatchResult> results = new ArrayList<>(chunk.size());
+
+        for (int i = 0; i < chunk.size(); i++) {
+            BeerDto beer = chunk.get(i);
+            BeerBatchResult.BeerBatchResultBuilder result = BeerBatchResult.builder()
+                    .index(firstIndex + i)
+                    .id(beer.getId());
+            Beer entity = null;
+
+            Map<String, String> errors = validate(beer);
+            if (!errors.isEmpty()) {
+                result.status(BeerBatchResult.Status.INVALID).errors(errors);
+            } else if (beer.getId() == null) {
+                entity = beerMapper.beerDtoToBeer(beer);
+                entity.setVersion(null);
+                entityManager.persist(entity);
+                result.status(BeerBatchResult.Status.CREATED);
+            } else if (!existing.containsKey(beer.getId())) {
+                result.status(BeerBatchResult.Status.NOT_FOUND);
+            } else if (beer.getVersion() != null && !beer.getVersion().equals(existing.get(beer.getId()).getVersion())) {
+                result.status(BeerBatchResult.Status.CONFLICT);
+            } else {
+                entity = existing.get(beer.getId());
+                entity.setBeerName(beer.getBeerName());
+                entity.setBeerStyle(beer.getBeerStyle());
+                entity.setUpc(beer.getUpc());
+                entity.setPrice(beer.getPrice());
+                entity.setQuantityOnHand(beer.getQuantityOnHand());
+                result.status(BeerBatchResult.Status.UPDATED);
+            }
+
+            written.add(entity);
+            results.add(result.build());
+        }
+
+        entityManager.flush();
+
+        // Ids and versions are final once the batches have run
+        for (int i = 0; i < results.size(); i++) {
+            Beer entity = written.get(i);
+            if (entity != null) {
+                results.get(i).setId(entity.getId());
+                results.get(i).setVersion(entity.getVersion());
+            }
+        }
+
+        entityManager.clear();
+
+        return results;
+    }
+
+    /**
+     * DTO constraints plus the entity's own (column lengths), so a bad item is rejected before it reaches the
+     * flush and cannot roll back the rest of its chunk.
+     */
+    private Map<String, String> validate(BeerDto beer) {
+        Map<String, String> errors = new LinkedHashMap<>();
+
+        for (ConstraintViolation<BeerDto> violation : validator.validate(beer)) {
+            errors.putIfAbsent(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        for (ConstraintViolation<Beer> violation : validator.validate(beerMapper.beerDtoToBeer(beer))) {
+            errors.putIfAbsent(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+
+        return errors;
+    }
+}
@@ -1,10 +1,28 @@
 package fi.soininen.tatu.spring6restmvc.services;
 
+import com.opencsv.exceptions.CsvException;
 import fi.soininen.tatu.spring6restmvc.model.BeerCSVRecord;
 
 import java.io.File;
+import java.io.Reader;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface BeerCsvService {
     List<BeerCSVRecord> convertCSV(File csvFile);
+
+    /**
+     * Parses {@code csvFile} lazily, one record per pull, so heap use does not depend on the file size. Rows that
+     * cannot be bound are passed to {@code malformedRows} with their line number and skipped. The stream holds the
+     * file open and must be closed by the caller.
+     */
+    Stream<BeerCSVRecord> streamCSV(Path csvFile, Consumer<CsvException> malformedRows);
+
+    /**
+     * {@link #streamCSV(Path, Consumer)} over an already opened reader, for CSV that is not a file (a classpath
+     * resource inside the jar, an upload). Closing the stream closes the reader.
+     */
+    Stream<BeerCSVRecord> streamCSV(Reader csv, Consumer<CsvException> malformedRows);
 }
@@ -1,17 +1,41 @@
 package fi.soininen.tatu.spring6restmvc.services;
 
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.bean.CsvToBean;
 import com.opencsv.bean.CsvToBeanBuilder;
+import com.opencsv.exceptions.CsvException;
 import fi.soininen.tatu.spring6restmvc.model.BeerCSVRecord;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 public class BeerCsvServiceImpl implements BeerCsvService {
 
+    static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    // An unbalanced quote would otherwise pull the rest of the file into a single field
+    static final int MULTILINE_LIMIT = 20;
+
     @Override
     public List<BeerCSVRecord> convertCSV(File csvFile) {
 
@@ -26,4 +50,48 @@ public class BeerCsvServiceImpl implements BeerCsvService {
             throw new RuntimeException(e);
         }
     }
+
+    @Override
+    public Stream<BeerCSVRecord> streamCSV(Path csvFile, Consumer<CsvException> malformedRows) {
+        BufferedReader reader;
+        try {
+            // Undecodable bytes become U+FFFD and surface as a bad field rather than ending the read
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ);
+            reader = new BufferedReader(Channels.newReader(channel, decoder, READ_BUFFER_SIZE), READ_BUFFER_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return streamCSV(reader, malformedRows);
+    }
+
+    @Override
+    public Stream<BeerCSVRecord> streamCSV(Reader csv, Consumer<CsvException> malformedRows) {
+        Reader reader = csv instanceof BufferedReader ? csv : new BufferedReader(csv, READ_BUFFER_SIZE);
+
+        CsvToBean<BeerCSVRecord> csvToBean = new CsvToBeanBuilder<BeerCSVRecord>(new CSVReaderBuilder(reader)
+                        .withMultilineLimit(MULTILINE_LIMIT)
+                        .build())
+                .withType(BeerCSVRecord.class)
+                .withExceptionHandler(e -> {
+                    malformedRows.accept(e);
+                    // Not queued: a file full of bad rows must not fill the heap with exceptions
+                    return null;
+                })
+                .build();
+
+        // iterator() reads and binds on the calling thread, one line at a time
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(csvToBean.iterator(),
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
 }
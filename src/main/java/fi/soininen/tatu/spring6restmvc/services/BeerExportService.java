@@ -0,0 +1,14 @@
+package fi.soininen.tatu.spring6restmvc.services;
+
+import fi.soininen.tatu.spring6restmvc.model.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface BeerExportService {
+
+    /**
+     * Writes every beer to {@code out}, ordered by id. Returns the number of beers written.
+     */
+    long exportBeers(ExportFormat format, OutputStream out) throws IOException;
+}
@@ -0,0 +1,126 @@
+package fi.soininen.tatu.spring6restmvc.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.opencsv.CSVWriter;
+import fi.soininen.tatu.spring6restmvc.model.BeerDto;
+import fi.soininen.tatu.spring6restmvc.model.ExportFormat;
+import fi.soininen.tatu.spring6restmvc.repositories.BeerRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Streams the catalog from a database cursor straight into the response. Rows are read as {@link BeerDto} columns,
+ * so nothing is attached to the persistence context and heap use does not grow with the table.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BeerExportServiceImpl implements BeerExportService {
+
+    static final int FETCH_SIZE = 1000;
+
+    static final String[] CSV_HEADER = {"id", "version", "beerName", "beerStyle", "upc", "quantityOnHand", "price",
+            "createdDate", "updatedDate"};
+
+    private final BeerRepository beerRepository;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportBeers(ExportFormat format, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+
+        long written = switch (format) {
+            case NDJSON -> writeNdjson(out);
+            case CSV -> writeCsv(out);
+        };
+
+        log.debug("Exported {} beers as {} in {} ms", written, format, System.currentTimeMillis() - start);
+
+        return written;
+    }
+
+    private long writeNdjson(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(BeerDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+
+            return forEachBeer(beer -> {
+                writer.writeValue(generator, beer);
+                generator.writeRaw('\n');
+            }, generator::flush);
+        }
+    }
+
+    private long writeCsv(OutputStream out) throws IOException {
+        Writer streamWriter = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        CSVWriter csvWriter = new CSVWriter(streamWriter);
+
+        csvWriter.writeNext(CSV_HEADER, false);
+
+        long written = forEachBeer(beer -> csvWriter.writeNext(new String[]{
+                Objects.toString(beer.getId(), ""),
+                Objects.toString(beer.getVersion(), ""),
+                beer.getBeerName(),
+                Objects.toString(beer.getBeerStyle(), ""),
+                beer.getUpc(),
+                Objects.toString(beer.getQuantityOnHand(), ""),
+                Objects.toString(beer.getPrice(), ""),
+                Objects.toString(beer.getCreatedDate(), ""),
+                Objects.toString(beer.getUpdatedDate(), "")
+        }, false), csvWriter::flush);
+
+        // The response stream belongs to the container; flush the writers without closing it
+        csvWriter.flush();
+
+        return written;
+    }
+
+    private long forEachBeer(RowWriter rowWriter, ChunkFlusher flusher) throws IOException {
+        long written = 0;
+
+        try (Stream<BeerDto> beers = beerRepository.streamBeerDtos(FETCH_SIZE)) {
+            Iterator<BeerDto> iterator = beers.iterator();
+
+            while (iterator.hasNext()) {
+                rowWriter.write(iterator.next());
+                written++;
+
+                if (written % FETCH_SIZE == 0) {
+                    // Hand each fetched chunk to the client before reading the next one
+                    flusher.flush();
+                }
+            }
+        }
+
+        flusher.flush();
+
+        return written;
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(BeerDto beer) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ChunkFlusher {
+        void flush() throws IOException;
+    }
+}
@@ -0,0 +1,26 @@
+package fi.soininen.tatu.spring6restmvc.services;
+
+import fi.soininen.tatu.spring6restmvc.model.BeerOrderCreateDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerOrderDto;
+import org.springframework.data.domain.Page;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface BeerOrderService {
+
+    /**
+     * Creates the order with its lines and allocates stock for every line, all or nothing. Returns the new order's
+     * id, or empty when the customer does not exist; throws {@link InsufficientInventoryException} when a line
+     * cannot be allocated, and {@link org.springframework.dao.DuplicateKeyException} when an order with the
+     * requested id already exists.
+     */
+    Optional<UUID> placeOrder(BeerOrderCreateDto order);
+
+    Optional<BeerOrderDto> getBeerOrderById(UUID beerOrderId);
+
+    /**
+     * Newest orders first, optionally only those of one customer. {@code pageNumber} starts at 1.
+     */
+    Page<BeerOrderDto> listBeerOrders(UUID customerId, Integer pageNumber, Integer pageSize);
+}
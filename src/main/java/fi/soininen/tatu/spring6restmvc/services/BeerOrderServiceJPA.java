@@ -0,0 +1,145 @@
+package fi.soininen.tatu.spring6restmvc.services;
+
+import fi.soininen.tatu.spring6restmvc.config.MetricsConfig;
+import fi.soininen.tatu.spring6restmvc.entities.BeerOrder;
+import fi.soininen.tatu.spring6restmvc.entities.BeerOrderLine;
+import fi.soininen.tatu.spring6restmvc.mappers.BeerOrderMapper;
+import fi.soininen.tatu.spring6restmvc.model.BeerOrderCreateDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerOrderDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerOrderLineCreateDto;
+import fi.soininen.tatu.spring6restmvc.repositories.BeerOrderRepository;
+import fi.soininen.tatu.spring6restmvc.repositories.BeerRepository;
+import fi.soininen.tatu.spring6restmvc.repositories.CustomerRepository;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Stock is allocated with {@link BeerRepository#allocateInventory}, one conditional UPDATE per beer, instead of
+ * reading the beer and saving it back, so concurrent orders never oversell and never fail on optimistic locks.
+ * Each UPDATE holds its beer's row lock until commit; beers are allocated in id order so two multi-line orders
+ * cannot deadlock on each other. A line that cannot be allocated rolls back the allocations before it.
+ * <p>
+ * An order may come with the client's own id. It is inserted without reading it first; a retry of a create that
+ * already went through fails on the primary key, and only then is the id looked up.
+ * <p>
+ * Reads follow the fetch plans in {@link BeerOrderRepository}: one statement for a whole order, and for a page
+ * the page query, its count and one query for the lines and beers of every order on it.
+ */
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+@RequiredArgsConstructor
+public class BeerOrderServiceJPA implements BeerOrderService {
+
+    private final BeerOrderRepository beerOrderRepository;
+    private final BeerRepository beerRepository;
+    private final CustomerRepository customerRepository;
+    private final BeerOrderMapper beerOrderMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    private static final int DEFAULT_PAGE = 0;
+    private static final int DEFAULT_SIZE = 25;
+    private static final int MAX_SIZE = 100;
+
+    @Override
+    public Optional<UUID> placeOrder(BeerOrderCreateDto order) {
+        try {
+            return transactionTemplate.execute(status -> insertOrder(order));
+        } catch (DataIntegrityViolationException e) {
+            // Only a failed insert looks the id up, to tell a retried create from other violations
+            if (order.getId() != null && beerOrderRepository.existsById(order.getId())) {
+                throw new DuplicateKeyException("Beer order " + order.getId() + " already exists", e);
+            }
+            throw e;
+        }
+    }
+
+    private Optional<UUID> insertOrder(BeerOrderCreateDto order) {
+        return customerRepository.findById(order.getCustomerId()).map(customer -> {
+            BeerOrder beerOrder = new BeerOrder();
+            beerOrder.setId(order.getId());
+            beerOrder.setCustomerRef(order.getCustomerRef());
+            beerOrder.setCustomer(customer);
+            beerOrder.setBeerOrderLines(new HashSet<>());
+
+            // The order row is written first, so a retried create fails on its primary key before any stock is
+            // locked
+            beerOrderRepository.saveAndFlush(beerOrder);
+
+            // Lines for the same beer are allocated together
+            Map<UUID, Integer> quantities = new TreeMap<>();
+            for (BeerOrderLineCreateDto line : order.getBeerOrderLines()) {
+                quantities.merge(line.getBeerId(), line.getOrderQuantity(), Integer::sum);
+            }
+
+            quantities.forEach((beerId, quantity) -> {
+                if (beerRepository.allocateInventory(beerId, quantity) == 0) {
+                    throw new InsufficientInventoryException(beerId, quantity, !beerRepository.existsById(beerId));
+                }
+            });
+
+            quantities.forEach((beerId, quantity) -> beerOrder.getBeerOrderLines().add(BeerOrderLine.builder()
+                    .beer(beerRepository.getReferenceById(beerId))
+                    .orderQuantity(quantity)
+                    .quantityAllocated(quantity)
+                    .beerOrder(beerOrder)
+                    .build()));
+
+            return beerOrder.getId();
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<BeerOrderDto> getBeerOrderById(UUID beerOrderId) {
+        return beerOrderRepository.findWithLinesById(beerOrderId)
+                .map(beerOrderMapper::beerOrderToBeerOrderDto);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<BeerOrderDto> listBeerOrders(UUID customerId, Integer pageNumber, Integer pageSize) {
+        PageRequest pageRequest = buildPageRequest(pageNumber, pageSize);
+
+        Page<BeerOrder> page = customerId == null
+                ? beerOrderRepository.findAllBy(pageRequest)
+                : beerOrderRepository.findAllByCustomerId(customerId, pageRequest);
+
+        if (page.hasContent()) {
+            List<UUID> ids = page.getContent().stream().map(BeerOrder::getId).toList();
+            beerOrderRepository.fetchLines(ids);
+        }
+
+        return page.map(beerOrderMapper::beerOrderToBeerOrderDto);
+    }
+
+    private PageRequest buildPageRequest(Integer pageNumber, Integer pageSize) {
+        int queryPageNumber = pageNumber != null && pageNumber > 0 ? pageNumber - 1 : DEFAULT_PAGE;
+        int queryPageSize = resolvePageSize(pageSize);
+
+        return PageRequest.of(queryPageNumber, queryPageSize,
+                Sort.by(Sort.Order.desc("createdDate"), Sort.Order.asc("id")));
+    }
+
+    private int resolvePageSize(Integer pageSize) {
+        if (pageSize == null || pageSize < 1) {
+            return DEFAULT_SIZE;
+        }
+
+        return Math.min(pageSize, MAX_SIZE);
+    }
+}
@@ -1,9 +1,15 @@
 package fi.soininen.tatu.spring6restmvc.services;
 
+import fi.soininen.tatu.spring6restmvc.model.BeerDeleteResult;
 import fi.soininen.tatu.spring6restmvc.model.BeerDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerPatchDto;
 import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import fi.soininen.tatu.spring6restmvc.model.CursorPage;
+import fi.soininen.tatu.spring6restmvc.model.PageCursor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -14,11 +20,44 @@ public interface BeerService {
 
     Page<BeerDto> listBeers(String beerName, BeerStyle beerStyle, Boolean showInventory, Integer pageNumber, Integer pageSize);
 
+    Slice<BeerDto> listBeersSlice(String beerName, BeerStyle beerStyle, Boolean showInventory, Integer pageNumber, Integer pageSize);
+
+    long countBeers(String beerName, BeerStyle beerStyle);
+
+    CursorPage<BeerDto> listBeersAfter(String beerName, BeerStyle beerStyle, Boolean showInventory, PageCursor after, Integer pageSize);
+
     Optional<BeerDto> getBeerById(UUID id);
 
+    Optional<Integer> getBeerVersion(UUID id);
+
+    /**
+     * Inserts the beer under its own id when it has one.
+     *
+     * @throws org.springframework.dao.DuplicateKeyException if a beer with that id already exists
+     */
     BeerDto saveNewBeer(BeerDto beer);
 
     Optional<BeerDto> updateBeerById(UUID beerId, BeerDto beer);
 
+    /**
+     * Updates the beer only if it is still at {@code expectedVersion}.
+     *
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the beer has moved on
+     */
+    Optional<BeerDto> updateBeerById(UUID beerId, BeerDto beer, Integer expectedVersion);
+
+    /**
+     * Writes the fields present in {@code patch} if the beer is still at {@code expectedVersion}, and returns the
+     * new version. Empty if there is no such beer.
+     *
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the beer has moved on
+     */
+    Optional<Integer> patchBeerById(UUID beerId, BeerPatchDto patch, int expectedVersion);
+
     Boolean deleteById(UUID beerId);
+
+    /**
+     * Deletes the listed beers in one transaction. Beers that order lines refer to are kept and reported.
+     */
+    BeerDeleteResult deleteBeersByIds(Collection<UUID> beerIds);
 }
@@ -1,10 +1,18 @@
 package fi.soininen.tatu.spring6restmvc.services;
 
+import fi.soininen.tatu.spring6restmvc.model.BeerDeleteResult;
 import fi.soininen.tatu.spring6restmvc.model.BeerDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerPatchDto;
 import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import fi.soininen.tatu.spring6restmvc.model.CursorPage;
+import fi.soininen.tatu.spring6restmvc.model.PageCursor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -69,6 +77,31 @@ public class BeerServiceImpl implements BeerService {
         return new PageImpl<>(new ArrayList<>(beerMap.values()));
     }
 
+    @Override
+    public Slice<BeerDto> listBeersSlice(String beerName, BeerStyle beerStyle, Boolean showInventory, Integer pageNumber, Integer pageSize) {
+        return new SliceImpl<>(new ArrayList<>(beerMap.values()));
+    }
+
+    @Override
+    public long countBeers(String beerName, BeerStyle beerStyle) {
+        return beerMap.size();
+    }
+
+    @Override
+    public CursorPage<BeerDto> listBeersAfter(String beerName, BeerStyle beerStyle, Boolean showInventory,
+                                              PageCursor after, Integer pageSize) {
+        List<BeerDto> content = beerMap.values().stream()
+                .sorted(Comparator.comparing(BeerDto::getBeerName).thenComparing(BeerDto::getId))
+                .filter(beer -> beer.getBeerName().compareTo(after.getSortKey()) > 0
+                        || (beer.getBeerName().equals(after.getSortKey()) && beer.getId().compareTo(after.getId()) > 0))
+                .toList();
+
+        return CursorPage.<BeerDto>builder()
+                .content(content)
+                .size(content.size())
+                .build();
+    }
+
     @Override
     public Optional<BeerDto> getBeerById(UUID id) {
 
@@ -77,11 +110,20 @@ public class BeerServiceImpl implements BeerService {
         return Optional.of(beerMap.get(id));
     }
 
+    @Override
+    public Optional<Integer> getBeerVersion(UUID id) {
+        return Optional.ofNullable(beerMap.get(id)).map(BeerDto::getVersion);
+    }
+
     @Override
     public BeerDto saveNewBeer(BeerDto beer) {
 
+        if (beer.getId() != null && beerMap.containsKey(beer.getId())) {
+            throw new DuplicateKeyException("Beer " + beer.getId() + " already exists");
+        }
+
         BeerDto savedBeer = BeerDto.builder()
-                .id(UUID.randomUUID())
+                .id(beer.getId() != null ? beer.getId() : UUID.randomUUID())
                 .createdDate(LocalDateTime.now())
                 .updatedDate(LocalDateTime.now())
                 .beerName(beer.getBeerName())
@@ -131,9 +173,75 @@ public class BeerServiceImpl implements BeerService {
         return Optional.of(existing);
     }
 
+    @Override
+    public Optional<BeerDto> updateBeerById(UUID beerId, BeerDto beer, Integer expectedVersion) {
+        BeerDto existing = beerMap.get(beerId);
+
+        if (existing == null) {
+            return Optional.empty();
+        }
+
+        if (!existing.getVersion().equals(expectedVersion)) {
+            throw new OptimisticLockingFailureException("Beer " + beerId + " is at version " + existing.getVersion());
+        }
+
+        return updateBeerById(beerId, beer);
+    }
+
+    @Override
+    public Optional<Integer> patchBeerById(UUID beerId, BeerPatchDto patch, int expectedVersion) {
+        BeerDto existing = beerMap.get(beerId);
+
+        if (existing == null) {
+            return Optional.empty();
+        }
+
+        if (existing.getVersion() != expectedVersion) {
+            throw new OptimisticLockingFailureException("Beer " + beerId + " is at version " + existing.getVersion());
+        }
+
+        if (patch.getBeerName() != null) {
+            existing.setBeerName(patch.getBeerName());
+        }
+        if (patch.getBeerStyle() != null) {
+            existing.setBeerStyle(patch.getBeerStyle());
+        }
+        if (patch.getUpc() != null) {
+            existing.setUpc(patch.getUpc());
+        }
+        if (patch.getQuantityOnHand() != null) {
+            existing.setQuantityOnHand(patch.getQuantityOnHand());
+        }
+        if (patch.getPrice() != null) {
+            existing.setPrice(patch.getPrice());
+        }
+        existing.setVersion(expectedVersion + 1);
+        existing.setUpdatedDate(LocalDateTime.now());
+
+        return Optional.of(existing.getVersion());
+    }
+
     @Override
     public Boolean deleteById(UUID beerId) {
         beerMap.remove(beerId);
         return true;
     }
+
+    @Override
+    public BeerDeleteResult deleteBeersByIds(Collection<UUID> beerIds) {
+        Set<UUID> ids = new LinkedHashSet<>(beerIds);
+        int deleted = 0;
+
+        for (UUID beerId : ids) {
+            if (beerMap.remove(beerId) != null) {
+                deleted++;
+            }
+        }
+
+        return BeerDeleteResult.builder()
+                .requested(ids.size())
+                .deleted(deleted)
+                .ordered(List.of())
+                .build();
+    }
 }
@@ -1,37 +1,70 @@
 package fi.soininen.tatu.spring6restmvc.services;
 
+import fi.soininen.tatu.spring6restmvc.config.CacheConfig;
+import fi.soininen.tatu.spring6restmvc.config.MetricsConfig;
 import fi.soininen.tatu.spring6restmvc.repositories.BeerRepository;
 import fi.soininen.tatu.spring6restmvc.entities.Beer;
 import fi.soininen.tatu.spring6restmvc.mappers.BeerMapper;
+import fi.soininen.tatu.spring6restmvc.model.BeerDeleteResult;
 import fi.soininen.tatu.spring6restmvc.model.BeerDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerPatchDto;
 import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import fi.soininen.tatu.spring6restmvc.model.CursorPage;
+import fi.soininen.tatu.spring6restmvc.model.PageCursor;
+import fi.soininen.tatu.spring6restmvc.search.BeerNameTrigramIndex;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @Primary
+@Timed(MetricsConfig.SERVICE_TIMER)
 @RequiredArgsConstructor
 public class BeerServiceJPA implements BeerService {
 
     private final BeerRepository beerRepository;
     private final BeerMapper beerMapper;
+    private final BeerNameTrigramIndex beerNameIndex;
 
     private static final int DEFAULT_PAGE = 0;
     private static final int DEFAULT_SIZE = 25;
+    private static final int MAX_SIZE = 1000;
+
+    static final int DELETE_CHUNK_SIZE = 500;
 
     public PageRequest buildPageRequest(Integer pageNumber, Integer pageSize) {
         int queryPageNumber;
-        int queryPageSize;
+        int queryPageSize = resolvePageSize(pageSize);
 
         if (pageNumber != null && pageNumber > 0) {
             queryPageNumber = pageNumber - 1;
@@ -39,52 +72,167 @@ public class BeerServiceJPA implements BeerService {
             queryPageNumber = DEFAULT_PAGE;
         }
 
-        if (pageSize == null) {
-            queryPageSize = DEFAULT_SIZE;
-        } else {
-            if (pageSize > 1000) {
-                queryPageSize = 1000;
-            } else {
-                queryPageSize = pageSize;
-            }
-        }
-
-        Sort sort = Sort.by(Sort.Order.asc("beerName"));
+        // The id tie-breaker keeps pages stable between beers of the same name, in the (beer_name, id) order of
+        // ix_beer_name_id and the name search
+        Sort sort = Sort.by(Sort.Order.asc("beerName"), Sort.Order.asc("id"));
 
         return PageRequest.of(queryPageNumber, queryPageSize, sort);
     }
 
+    private int resolvePageSize(Integer pageSize) {
+        if (pageSize == null || pageSize < 1) {
+            return DEFAULT_SIZE;
+        }
+
+        return Math.min(pageSize, MAX_SIZE);
+    }
+
+    /**
+     * Reads {@link BeerDto} columns straight from the database; no {@link Beer} entity is loaded, so the
+     * read-only transaction leaves nothing for Hibernate to snapshot or dirty-check.
+     */
     @Override
+    @Transactional(readOnly = true)
     public Page<BeerDto> listBeers(String beerName, BeerStyle beerStyle, Boolean showInventory,
                                    Integer pageNumber, Integer pageSize) {
 
+        PageRequest pageRequest = buildPageRequest(pageNumber, pageSize);
+        boolean inventory = showInventory == null || showInventory;
+
+        if (StringUtils.hasText(beerName) && beerStyle == null && beerNameIndex.supports(beerName)) {
+            // Search parameters has name but no style, answered by the trigram index
+            Page<UUID> matches = beerNameIndex.search(beerName, pageRequest);
+
+            Map<UUID, BeerDto> beersById = beerRepository.findBeerDtosByIdIn(matches.getContent(), inventory).stream()
+                    .collect(Collectors.toMap(BeerDto::getId, Function.identity()));
+
+            List<BeerDto> beers = matches.getContent().stream()
+                    .map(beersById::get)
+                    .filter(Objects::nonNull)
+                    .toList();
+
+            return new PageImpl<>(beers, pageRequest, matches.getTotalElements());
+        }
+
+        return beerRepository.findBeerDtos(beerName, beerStyle, inventory, pageRequest);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<BeerDto> listBeersSlice(String beerName, BeerStyle beerStyle, Boolean showInventory,
+                                         Integer pageNumber, Integer pageSize) {
+
         PageRequest pageRequest = buildPageRequest(pageNumber, pageSize);
 
-        Page<Beer> beerPage;
+        Slice<Beer> beerSlice;
 
         if (StringUtils.hasText(beerName) && beerStyle == null) {
-            // Search parameters has name but no style
-            beerPage = listBeersByName(beerName, pageRequest);
+            beerSlice = beerRepository.findSliceByBeerNameIsLikeIgnoreCase("%" + beerName + "%", pageRequest);
         } else if (!StringUtils.hasText(beerName) && beerStyle != null) {
-            // Search parameters has style but no name
-            beerPage = listBeersByStyle(beerStyle, pageRequest);
+            beerSlice = beerRepository.findSliceByBeerStyle(beerStyle, pageRequest);
         } else if (StringUtils.hasText(beerName) && beerStyle != null) {
-            // Search parameters has both style and name
-            beerPage = listBeersByNameAndStyleStyle(beerName, beerStyle, pageRequest);
+            beerSlice = beerRepository.findSliceByBeerNameIsLikeIgnoreCaseAndBeerStyle("%" + beerName + "%",
+                    beerStyle, pageRequest);
         } else {
-            // Return all
-            beerPage = beerRepository.findAll(pageRequest);
+            beerSlice = beerRepository.findSliceBy(pageRequest);
         }
 
+        Slice<BeerDto> dtoSlice = beerSlice.map(beerMapper::beerToBeerDto);
+
         if (showInventory != null && !showInventory) {
-            beerPage.forEach(beer -> beer.setQuantityOnHand(null));
+            dtoSlice.forEach(beerDto -> beerDto.setQuantityOnHand(null));
+        }
+
+        return dtoSlice;
+    }
+
+    @Override
+    @Cacheable(cacheNames = CacheConfig.BEER_COUNT_CACHE)
+    @Transactional(readOnly = true)
+    public long countBeers(String beerName, BeerStyle beerStyle) {
+
+        if (StringUtils.hasText(beerName) && beerStyle == null) {
+            if (beerNameIndex.supports(beerName)) {
+                return beerNameIndex.count(beerName);
+            }
+            return beerRepository.countByBeerNameIsLikeIgnoreCase("%" + beerName + "%");
+        } else if (!StringUtils.hasText(beerName) && beerStyle != null) {
+            return beerRepository.countByBeerStyle(beerStyle);
+        } else if (StringUtils.hasText(beerName) && beerStyle != null) {
+            return beerRepository.countByBeerNameIsLikeIgnoreCaseAndBeerStyle("%" + beerName + "%", beerStyle);
         }
 
-        return beerPage.map(beerMapper::beerToBeerDto);
+        return beerRepository.count();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<BeerDto> listBeersAfter(String beerName, BeerStyle beerStyle, Boolean showInventory,
+                                              PageCursor after, Integer pageSize) {
+
+        int querySize = resolvePageSize(pageSize);
+
+        // One extra row tells whether another page follows, without a count query
+        Pageable limit = PageRequest.of(0, querySize + 1);
+        String lastBeerName = after.getSortKey();
+        UUID lastId = after.getId();
+
+        List<Beer> beers;
+
+        if (StringUtils.hasText(beerName) && beerStyle == null) {
+            beers = beerRepository.findAllByBeerNameAfter("%" + beerName + "%", lastBeerName, lastId, limit);
+        } else if (!StringUtils.hasText(beerName) && beerStyle != null) {
+            beers = beerRepository.findAllByBeerStyleAfter(beerStyle, lastBeerName, lastId, limit);
+        } else if (StringUtils.hasText(beerName) && beerStyle != null) {
+            beers = beerRepository.findAllByBeerNameAndBeerStyleAfter("%" + beerName + "%", beerStyle,
+                    lastBeerName, lastId, limit);
+        } else {
+            beers = beerRepository.findAllAfter(lastBeerName, lastId, limit);
+        }
+
+        boolean hasNext = beers.size() > querySize;
+        List<Beer> page = hasNext ? beers.subList(0, querySize) : beers;
+
+        List<BeerDto> content = page.stream()
+                .map(beerMapper::beerToBeerDto)
+                .toList();
+
+        if (showInventory != null && !showInventory) {
+            content.forEach(beerDto -> beerDto.setQuantityOnHand(null));
+        }
+
+        String next = null;
+        if (hasNext) {
+            Beer last = page.get(page.size() - 1);
+            next = new PageCursor(last.getBeerName(), last.getId()).encode();
+        }
+
+        return CursorPage.<BeerDto>builder()
+                .content(content)
+                .size(content.size())
+                .next(next)
+                .build();
     }
 
     public Page<Beer> listBeersByName(String beerName, Pageable pageable) {
-        return beerRepository.findAllByBeerNameIsLikeIgnoreCase("%" + beerName + "%", pageable);
+        if (!beerNameIndex.supports(beerName)) {
+            return beerRepository.findAllByBeerNameIsLikeIgnoreCase("%" + beerName + "%", pageable);
+        }
+
+        // The trigram index resolves and orders the matching ids; only the requested page is read
+        Page<UUID> matches = beerNameIndex.search(beerName, pageable);
+        List<UUID> pageIds = matches.getContent();
+
+        Map<UUID, Beer> beersById = beerRepository.findAllById(pageIds).stream()
+                .collect(Collectors.toMap(Beer::getId, Function.identity()));
+
+        // Ids removed after the index was read simply drop out of the page
+        List<Beer> beers = pageIds.stream()
+                .map(beersById::get)
+                .filter(Objects::nonNull)
+                .toList();
+
+        return new PageImpl<>(beers, pageable, matches.getTotalElements());
     }
 
     public Page<Beer> listBeersByStyle(BeerStyle beerStyle, Pageable pageable) {
@@ -96,29 +244,49 @@ public class BeerServiceJPA implements BeerService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<BeerDto> getBeerById(UUID id) {
         return Optional.ofNullable(beerMapper.beerToBeerDto(beerRepository.findById(id).orElse(null)));
     }
 
+    /**
+     * Served from the second-level cache when the beer is there; nothing is mapped.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Integer> getBeerVersion(UUID id) {
+        return beerRepository.findById(id).map(Beer::getVersion);
+    }
+
     @Override
+    @CacheEvict(cacheNames = CacheConfig.BEER_COUNT_CACHE, allEntries = true)
     public BeerDto saveNewBeer(BeerDto beer) {
-        return beerMapper.beerToBeerDto(beerRepository.save(beerMapper.beerDtoToBeer(beer)));
+        Beer entity = beerMapper.beerDtoToBeer(beer);
+        entity.setVersion(null);
+
+        // Inserted without a read, under the client's id if it sent one; a retry fails on the primary key
+        try {
+            return beerMapper.beerToBeerDto(beerRepository.saveAndFlush(entity));
+        } catch (DataIntegrityViolationException e) {
+            if (beer.getId() != null && beerRepository.existsById(beer.getId())) {
+                throw new DuplicateKeyException("Beer " + beer.getId() + " already exists", e);
+            }
+            throw e;
+        }
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.BEER_COUNT_CACHE, allEntries = true)
     public Optional<BeerDto> updateBeerById(UUID beerId, BeerDto beer) {
 
         AtomicReference<Optional<BeerDto>> atomicReference = new AtomicReference<>();
 
         beerRepository.findById(beerId).ifPresentOrElse(foundBeer -> {
-            foundBeer.setBeerName(beer.getBeerName());
-            foundBeer.setBeerStyle(beer.getBeerStyle());
-            foundBeer.setUpc(beer.getUpc());
-            foundBeer.setPrice(beer.getPrice());
-            foundBeer.setQuantityOnHand(beer.getQuantityOnHand());
+            copyUpdatableFields(beer, foundBeer);
 
             atomicReference.set(Optional.of(beerMapper
-                    .beerToBeerDto(beerRepository.save(foundBeer))));
+                    .beerToBeerDto(beerRepository.saveAndFlush(foundBeer))));
         }, () -> {
             atomicReference.set(Optional.empty());
         });
@@ -127,11 +295,107 @@ public class BeerServiceJPA implements BeerService {
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.BEER_COUNT_CACHE, allEntries = true)
+    public Optional<BeerDto> updateBeerById(UUID beerId, BeerDto beer, Integer expectedVersion) {
+
+        return beerRepository.findById(beerId).map(foundBeer -> {
+            // A concurrent writer that commits after this check still fails on the versioned UPDATE at flush
+            if (!foundBeer.getVersion().equals(expectedVersion)) {
+                throw new ObjectOptimisticLockingFailureException(Beer.class, beerId);
+            }
+
+            copyUpdatableFields(beer, foundBeer);
+
+            return beerMapper.beerToBeerDto(beerRepository.saveAndFlush(foundBeer));
+        });
+    }
+
+    /**
+     * The happy path is the single conditional UPDATE. Only when it matches no row does a second statement tell a
+     * missing beer from a stale version.
+     */
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.BEER_COUNT_CACHE, allEntries = true)
+    public Optional<Integer> patchBeerById(UUID beerId, BeerPatchDto patch, int expectedVersion) {
+
+        if (beerRepository.patchBeer(beerId, expectedVersion, patch) == 0) {
+            if (!beerRepository.existsById(beerId)) {
+                return Optional.empty();
+            }
+            throw new ObjectOptimisticLockingFailureException(Beer.class, beerId);
+        }
+
+        String beerName = patch.getBeerName();
+        if (beerName != null) {
+            // Bulk updates bypass the entity listener that keeps the name index current
+            afterCommit(() -> beerNameIndex.put(beerId, beerName));
+        }
+
+        return Optional.of(expectedVersion + 1);
+    }
+
+    private void copyUpdatableFields(BeerDto source, Beer target) {
+        target.setBeerName(source.getBeerName());
+        target.setBeerStyle(source.getBeerStyle());
+        target.setUpc(source.getUpc());
+        target.setPrice(source.getPrice());
+        target.setQuantityOnHand(source.getQuantityOnHand());
+    }
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.BEER_COUNT_CACHE, allEntries = true)
     public Boolean deleteById(UUID beerId) {
-        if (beerRepository.existsById(beerId)) {
-            beerRepository.deleteById(beerId);
-            return true;
+        // The affected row count tells a missing beer apart; nothing is read first
+        if (beerRepository.deleteBeers(List.of(beerId)) == 0) {
+            return false;
         }
-        return false;
+
+        afterCommit(() -> beerNameIndex.remove(beerId));
+        return true;
+    }
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.BEER_COUNT_CACHE, allEntries = true)
+    public BeerDeleteResult deleteBeersByIds(Collection<UUID> beerIds) {
+        List<UUID> ids = List.copyOf(new LinkedHashSet<>(beerIds));
+        List<UUID> ordered = new ArrayList<>();
+        int deleted = 0;
+
+        for (int from = 0; from < ids.size(); from += DELETE_CHUNK_SIZE) {
+            List<UUID> chunk = ids.subList(from, Math.min(from + DELETE_CHUNK_SIZE, ids.size()));
+
+            // Ordered beers are left out up front, so one of them cannot fail the DELETE for the whole chunk
+            Set<UUID> chunkOrdered = new HashSet<>(beerRepository.findOrderedBeerIds(chunk));
+            List<UUID> deletable = chunk.stream()
+                    .filter(id -> !chunkOrdered.contains(id))
+                    .toList();
+            chunk.stream()
+                    .filter(chunkOrdered::contains)
+                    .forEach(ordered::add);
+
+            if (!deletable.isEmpty()) {
+                deleted += beerRepository.deleteBeers(deletable);
+                afterCommit(() -> deletable.forEach(beerNameIndex::remove));
+            }
+        }
+
+        return BeerDeleteResult.builder()
+                .requested(ids.size())
+                .deleted(deleted)
+                .ordered(ordered)
+                .build();
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
@@ -0,0 +1,14 @@
+package fi.soininen.tatu.spring6restmvc.services;
+
+import fi.soininen.tatu.spring6restmvc.model.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface CustomerExportService {
+
+    /**
+     * Writes every customer to {@code out}, ordered by id. Returns the number of customers written.
+     */
+    long exportCustomers(ExportFormat format, OutputStream out) throws IOException;
+}
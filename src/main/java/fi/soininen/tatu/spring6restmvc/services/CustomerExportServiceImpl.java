@@ -0,0 +1,120 @@
+package fi.soininen.tatu.spring6restmvc.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.opencsv.CSVWriter;
+import fi.soininen.tatu.spring6restmvc.model.CustomerDto;
+import fi.soininen.tatu.spring6restmvc.model.ExportFormat;
+import fi.soininen.tatu.spring6restmvc.repositories.CustomerRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Streams the customer table from a database cursor straight into the response, one fetched chunk at a time.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CustomerExportServiceImpl implements CustomerExportService {
+
+    static final int FETCH_SIZE = 1000;
+
+    static final String[] CSV_HEADER = {"id", "version", "name", "email", "createdDate", "updatedDate"};
+
+    private final CustomerRepository customerRepository;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportCustomers(ExportFormat format, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+
+        long written = switch (format) {
+            case NDJSON -> writeNdjson(out);
+            case CSV -> writeCsv(out);
+        };
+
+        log.debug("Exported {} customers as {} in {} ms", written, format, System.currentTimeMillis() - start);
+
+        return written;
+    }
+
+    private long writeNdjson(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(CustomerDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+
+            return forEachCustomer(customer -> {
+                writer.writeValue(generator, customer);
+                generator.writeRaw('\n');
+            }, generator::flush);
+        }
+    }
+
+    private long writeCsv(OutputStream out) throws IOException {
+        Writer streamWriter = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        CSVWriter csvWriter = new CSVWriter(streamWriter);
+
+        csvWriter.writeNext(CSV_HEADER, false);
+
+        long written = forEachCustomer(customer -> csvWriter.writeNext(new String[]{
+                Objects.toString(customer.getId(), ""),
+                Objects.toString(customer.getVersion(), ""),
+                Objects.toString(customer.getName(), ""),
+                Objects.toString(customer.getEmail(), ""),
+                Objects.toString(customer.getCreatedDate(), ""),
+                Objects.toString(customer.getUpdatedDate(), "")
+        }, false), csvWriter::flush);
+
+        // The response stream belongs to the container; flush the writers without closing it
+        csvWriter.flush();
+
+        return written;
+    }
+
+    private long forEachCustomer(RowWriter rowWriter, ChunkFlusher flusher) throws IOException {
+        long written = 0;
+
+        try (Stream<CustomerDto> customers = customerRepository.streamCustomerDtos(FETCH_SIZE)) {
+            Iterator<CustomerDto> iterator = customers.iterator();
+
+            while (iterator.hasNext()) {
+                rowWriter.write(iterator.next());
+                written++;
+
+                if (written % FETCH_SIZE == 0) {
+                    flusher.flush();
+                }
+            }
+        }
+
+        flusher.flush();
+
+        return written;
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(CustomerDto customer) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ChunkFlusher {
+        void flush() throws IOException;
+    }
+}
@@ -1,20 +1,38 @@
 package fi.soininen.tatu.spring6restmvc.services;
 
+import fi.soininen.tatu.spring6restmvc.model.CursorPage;
 import fi.soininen.tatu.spring6restmvc.model.CustomerDto;
+import fi.soininen.tatu.spring6restmvc.model.CustomerPatchDto;
+import fi.soininen.tatu.spring6restmvc.model.PageCursor;
+import org.springframework.data.domain.Page;
 
-import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface CustomerService {
 
-    List<CustomerDto> listCustomers();
+    Page<CustomerDto> listCustomers(String name, String email, Integer pageNumber, Integer pageSize);
+
+    CursorPage<CustomerDto> listCustomersAfter(String name, String email, PageCursor after, Integer pageSize);
 
     Optional<CustomerDto> getCustomerById(UUID id);
 
+    /**
+     * Inserts the customer under its own id when it has one.
+     *
+     * @throws org.springframework.dao.DuplicateKeyException if a customer with that id already exists
+     */
     CustomerDto saveNewCustomer(CustomerDto customer);
 
     Boolean deleteById(UUID customerId);
 
     Optional<CustomerDto> updateCustomerById(UUID customerId, CustomerDto customer);
+
+    /**
+     * Writes the fields present in {@code patch} if the customer is still at {@code expectedVersion}, and returns
+     * the new version. Empty if there is no such customer.
+     *
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the customer has moved on
+     */
+    Optional<Integer> patchCustomerById(UUID customerId, CustomerPatchDto patch, int expectedVersion);
 }
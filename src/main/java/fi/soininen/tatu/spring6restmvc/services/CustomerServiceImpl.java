@@ -1,7 +1,14 @@
 package fi.soininen.tatu.spring6restmvc.services;
 
+import fi.soininen.tatu.spring6restmvc.model.CursorPage;
 import fi.soininen.tatu.spring6restmvc.model.CustomerDto;
+import fi.soininen.tatu.spring6restmvc.model.CustomerPatchDto;
+import fi.soininen.tatu.spring6restmvc.model.PageCursor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -37,8 +44,22 @@ public class CustomerServiceImpl implements CustomerService {
     }
 
     @Override
-    public List<CustomerDto> listCustomers() {
-        return new ArrayList<>(customerMap.values());
+    public Page<CustomerDto> listCustomers(String name, String email, Integer pageNumber, Integer pageSize) {
+        return new PageImpl<>(new ArrayList<>(customerMap.values()));
+    }
+
+    @Override
+    public CursorPage<CustomerDto> listCustomersAfter(String name, String email, PageCursor after,
+                                                      Integer pageSize) {
+        List<CustomerDto> content = customerMap.values().stream()
+                .sorted(Comparator.comparing(CustomerDto::getId))
+                .filter(customer -> customer.getId().compareTo(after.getId()) > 0)
+                .toList();
+
+        return CursorPage.<CustomerDto>builder()
+                .content(content)
+                .size(content.size())
+                .build();
     }
 
     @Override
@@ -51,8 +72,12 @@ public class CustomerServiceImpl implements CustomerService {
     @Override
     public CustomerDto saveNewCustomer(CustomerDto customer) {
 
+        if (customer.getId() != null && customerMap.containsKey(customer.getId())) {
+            throw new DuplicateKeyException("Customer " + customer.getId() + " already exists");
+        }
+
         CustomerDto savedCustomer = CustomerDto.builder()
-                .id(UUID.randomUUID())
+                .id(customer.getId() != null ? customer.getId() : UUID.randomUUID())
                 .createdDate(LocalDateTime.now())
                 .updatedDate(LocalDateTime.now())
                 .name(customer.getName())
@@ -87,4 +112,29 @@ public class CustomerServiceImpl implements CustomerService {
 
         return Optional.of(existing);
     }
+
+    @Override
+    public Optional<Integer> patchCustomerById(UUID customerId, CustomerPatchDto patch, int expectedVersion) {
+        CustomerDto existing = customerMap.get(customerId);
+
+        if (existing == null) {
+            return Optional.empty();
+        }
+
+        if (existing.getVersion() != expectedVersion) {
+            throw new OptimisticLockingFailureException("Customer " + customerId + " is at version "
+                    + existing.getVersion());
+        }
+
+        if (patch.getName() != null) {
+            existing.setName(patch.getName());
+        }
+        if (patch.getEmail() != null) {
+            existing.setEmail(patch.getEmail());
+        }
+        existing.setVersion(expectedVersion + 1);
+        existing.setUpdatedDate(LocalDateTime.now());
+
+        return Optional.of(existing.getVersion());
+    }
 }
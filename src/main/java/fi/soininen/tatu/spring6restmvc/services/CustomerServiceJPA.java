@@ -1,11 +1,24 @@
 package fi.soininen.tatu.spring6restmvc.services;
 
+import fi.soininen.tatu.spring6restmvc.config.MetricsConfig;
+import fi.soininen.tatu.spring6restmvc.entities.Customer;
 import fi.soininen.tatu.spring6restmvc.repositories.CustomerRepository;
 import fi.soininen.tatu.spring6restmvc.mappers.CustomerMapper;
+import fi.soininen.tatu.spring6restmvc.model.CursorPage;
 import fi.soininen.tatu.spring6restmvc.model.CustomerDto;
+import fi.soininen.tatu.spring6restmvc.model.CustomerPatchDto;
+import fi.soininen.tatu.spring6restmvc.model.PageCursor;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -14,21 +27,76 @@ import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @Primary
+@Timed(MetricsConfig.SERVICE_TIMER)
 @RequiredArgsConstructor
 public class CustomerServiceJPA implements CustomerService {
 
     private final CustomerRepository customerRepository;
     private final CustomerMapper customerMapper;
 
+    private static final int DEFAULT_PAGE = 0;
+    private static final int DEFAULT_SIZE = 25;
+    private static final int MAX_SIZE = 1000;
+
+    public PageRequest buildPageRequest(Integer pageNumber, Integer pageSize) {
+        int queryPageNumber;
+        int queryPageSize = resolvePageSize(pageSize);
+
+        if (pageNumber != null && pageNumber > 0) {
+            queryPageNumber = pageNumber - 1;
+        } else {
+            queryPageNumber = DEFAULT_PAGE;
+        }
+
+        // The id tie-breaker keeps pages stable between customers of the same name
+        Sort sort = Sort.by(Sort.Order.asc("name"), Sort.Order.asc("id"));
+
+        return PageRequest.of(queryPageNumber, queryPageSize, sort);
+    }
+
+    private int resolvePageSize(Integer pageSize) {
+        if (pageSize == null || pageSize < 1) {
+            return DEFAULT_SIZE;
+        }
+
+        return Math.min(pageSize, MAX_SIZE);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<CustomerDto> listCustomers(String name, String email, Integer pageNumber, Integer pageSize) {
+        return customerRepository.findCustomerDtos(name, email, buildPageRequest(pageNumber, pageSize));
+    }
+
     @Override
-    public List<CustomerDto> listCustomers() {
+    @Transactional(readOnly = true)
+    public CursorPage<CustomerDto> listCustomersAfter(String name, String email, PageCursor after,
+                                                      Integer pageSize) {
 
-        return customerRepository.findAll().stream()
-                .map(customerMapper::customerToCustomerDto)
-                .toList();
+        int querySize = resolvePageSize(pageSize);
+
+        // One extra row tells whether another page follows, without a count query
+        List<CustomerDto> customers = customerRepository.findCustomerDtosAfter(name, email, after.getId(),
+                querySize + 1);
+
+        boolean hasNext = customers.size() > querySize;
+        List<CustomerDto> content = hasNext ? customers.subList(0, querySize) : customers;
+
+        String next = null;
+        if (hasNext) {
+            // Customer names are optional, so the keyset is the id alone
+            next = new PageCursor("", content.get(content.size() - 1).getId()).encode();
+        }
+
+        return CursorPage.<CustomerDto>builder()
+                .content(content)
+                .size(content.size())
+                .next(next)
+                .build();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<CustomerDto> getCustomerById(UUID id) {
         return Optional.ofNullable(
                 customerMapper.customerToCustomerDto(
@@ -38,20 +106,29 @@ public class CustomerServiceJPA implements CustomerService {
 
     @Override
     public CustomerDto saveNewCustomer(CustomerDto customer) {
-        return customerMapper.customerToCustomerDto(customerRepository
-                .save(customerMapper.customerDtoToCustomer(customer)));
+        Customer entity = customerMapper.customerDtoToCustomer(customer);
+        entity.setVersion(null);
+
+        // Inserted without a read, under the client's id if it sent one; a retry fails on the primary key
+        try {
+            return customerMapper.customerToCustomerDto(customerRepository.saveAndFlush(entity));
+        } catch (DataIntegrityViolationException e) {
+            if (customer.getId() != null && customerRepository.existsById(customer.getId())) {
+                throw new DuplicateKeyException("Customer " + customer.getId() + " already exists", e);
+            }
+            throw e;
+        }
     }
 
     @Override
+    @Transactional
     public Boolean deleteById(UUID customerId) {
-        if (customerRepository.existsById(customerId)) {
-            customerRepository.deleteById(customerId);
-            return true;
-        }
-        return false;
+        // The affected row count tells a missing customer apart; nothing is read first
+        return customerRepository.deleteCustomer(customerId) > 0;
     }
 
     @Override
+    @Transactional
     public Optional<CustomerDto> updateCustomerById(UUID customerId, CustomerDto customer) {
 
         AtomicReference<Optional<CustomerDto>> atomicReference = new AtomicReference<>();
@@ -59,11 +136,29 @@ public class CustomerServiceJPA implements CustomerService {
         customerRepository.findById(customerId).ifPresentOrElse(foundCustomer -> {
             foundCustomer.setName(customer.getName());
             atomicReference.set(Optional.of(customerMapper
-                    .customerToCustomerDto(customerRepository.save(foundCustomer))));
+                    .customerToCustomerDto(customerRepository.saveAndFlush(foundCustomer))));
         }, () -> {
             atomicReference.set(Optional.empty());
         });
 
         return atomicReference.get();
     }
+
+    /**
+     * The happy path is the single conditional UPDATE. Only when it matches no row does a second statement tell a
+     * missing customer from a stale version.
+     */
+    @Override
+    @Transactional
+    public Optional<Integer> patchCustomerById(UUID customerId, CustomerPatchDto patch, int expectedVersion) {
+
+        if (customerRepository.patchCustomer(customerId, expectedVersion, patch) == 0) {
+            if (!customerRepository.existsById(customerId)) {
+                return Optional.empty();
+            }
+            throw new ObjectOptimisticLockingFailureException(Customer.class, customerId);
+        }
+
+        return Optional.of(expectedVersion + 1);
+    }
 }
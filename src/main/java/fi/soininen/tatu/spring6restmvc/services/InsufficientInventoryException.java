@@ -0,0 +1,22 @@
+package fi.soininen.tatu.spring6restmvc.services;
+
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * An order line asked for more of a beer than is on hand, or for a beer that does not exist. The order was
+ * rolled back as a whole.
+ */
+@Getter
+public class InsufficientInventoryException extends RuntimeException {
+
+    private final UUID beerId;
+    private final boolean unknownBeer;
+
+    public InsufficientInventoryException(UUID beerId, int requested, boolean unknownBeer) {
+        super(unknownBeer ? "Unknown beer " + beerId : "Less than " + requested + " of beer " + beerId + " on hand");
+        this.beerId = beerId;
+        this.unknownBeer = unknownBeer;
+    }
+}
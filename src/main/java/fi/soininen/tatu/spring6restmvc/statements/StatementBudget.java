@@ -0,0 +1,19 @@
+package fi.soininen.tatu.spring6restmvc.statements;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Most SQL statements one request to the annotated handler, or to any handler of the annotated controller, is
+ * expected to run. Handlers without it get {@code app.statement-budget.default}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface StatementBudget {
+
+    int value();
+}
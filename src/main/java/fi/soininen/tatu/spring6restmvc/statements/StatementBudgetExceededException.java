@@ -0,0 +1,11 @@
+package fi.soininen.tatu.spring6restmvc.statements;
+
+/**
+ * A request ran more SQL statements than its {@link StatementBudget} while budgets are enforced.
+ */
+public class StatementBudgetExceededException extends RuntimeException {
+
+    public StatementBudgetExceededException(String scope, int budget, String sql) {
+        super(scope + " exceeded its budget of " + budget + " SQL statements at: " + sql);
+    }
+}
@@ -0,0 +1,72 @@
+package fi.soininen.tatu.spring6restmvc.statements;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Opens a {@link StatementCounter} scope around each handler call, including response serialization, and logs
+ * requests that ran more statements than their {@link StatementBudget}. With {@code reject} the offending
+ * statement fails instead, which is meant for development and test runs.
+ * <p>
+ * Only statements on the request thread are counted; work handed to another thread, such as the body of the
+ * streaming export, is not.
+ */
+@Slf4j
+public class StatementBudgetInterceptor implements AsyncHandlerInterceptor {
+
+    static final String SCOPE_ATTRIBUTE = StatementBudgetInterceptor.class.getName() + ".scope";
+
+    private final int defaultBudget;
+    private final boolean reject;
+
+    public StatementBudgetInterceptor(int defaultBudget, boolean reject) {
+        this.defaultBudget = defaultBudget;
+        this.reject = reject;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod handlerMethod) {
+            String name = request.getMethod() + " " + request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            request.setAttribute(SCOPE_ATTRIBUTE, StatementCounter.open(name, budgetOf(handlerMethod), reject));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        close(request);
+    }
+
+    // The request thread moves on to other work; the async dispatch that follows gets a scope of its own
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        close(request);
+    }
+
+    private void close(HttpServletRequest request) {
+        if (!(request.getAttribute(SCOPE_ATTRIBUTE) instanceof StatementCounter.Scope scope)) {
+            return;
+        }
+        request.removeAttribute(SCOPE_ATTRIBUTE);
+        scope.close();
+
+        if (scope.isExceeded()) {
+            log.warn("{} ran {} SQL statements, budget is {}", scope.getName(), scope.getCount(), scope.getBudget());
+        }
+    }
+
+    private int budgetOf(HandlerMethod handlerMethod) {
+        StatementBudget budget = handlerMethod.getMethodAnnotation(StatementBudget.class);
+        if (budget == null) {
+            budget = handlerMethod.getBeanType().getAnnotation(StatementBudget.class);
+        }
+        return budget == null ? defaultBudget : budget.value();
+    }
+}
@@ -0,0 +1,118 @@
+package fi.soininen.tatu.spring6restmvc.statements;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread, per open {@link Scope}. Scopes nest: a
+ * statement counts towards every open scope, and a closing scope reports its total to the one around it, so an
+ * outer scope can tell how many statements its busiest inner scope ran.
+ */
+public final class StatementCounter {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private StatementCounter() {
+    }
+
+    /**
+     * Opens a scope on the current thread; close it on the same thread. With {@code reject} set, the statement
+     * that goes over {@code budget} fails with {@link StatementBudgetExceededException} instead of running.
+     */
+    public static Scope open(String name, int budget, boolean reject) {
+        Scope scope = new Scope(name, budget, reject, CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * Opens a scope without a budget that also keeps the SQL of every statement counted towards it.
+     */
+    public static Scope record(String name) {
+        Scope scope = open(name, Integer.MAX_VALUE, false);
+        scope.statements = new ArrayList<>();
+        return scope;
+    }
+
+    static void statementPrepared(String sql) {
+        for (Scope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.count++;
+            if (scope.statements != null) {
+                scope.statements.add(sql);
+            }
+            if (scope.reject && scope.count > scope.budget) {
+                throw new StatementBudgetExceededException(scope.name, scope.budget, sql);
+            }
+        }
+    }
+
+    public static final class Scope implements AutoCloseable {
+
+        private final String name;
+        private final int budget;
+        private final boolean reject;
+        private final Scope parent;
+
+        private int count;
+        private int maxInner;
+        private String maxInnerName;
+        private List<String> statements;
+
+        private Scope(String name, int budget, boolean reject, Scope parent) {
+            this.name = name;
+            this.budget = budget;
+            this.reject = reject;
+            this.parent = parent;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getBudget() {
+            return budget;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public boolean isExceeded() {
+            return count > budget;
+        }
+
+        /**
+         * Most statements run by a single scope closed inside this one, or -1 if none was.
+         */
+        public int getMaxInnerCount() {
+            return maxInnerName == null ? -1 : maxInner;
+        }
+
+        public String getMaxInnerName() {
+            return maxInnerName;
+        }
+
+        /**
+         * SQL of the statements counted so far, in order, for scopes opened with {@link #record}; otherwise empty.
+         */
+        public List<String> getStatements() {
+            return statements == null ? List.of() : List.copyOf(statements);
+        }
+
+        @Override
+        public void close() {
+            if (CURRENT.get() != this) {
+                throw new IllegalStateException("Statement scope " + name + " is not the innermost open scope");
+            }
+            if (parent == null) {
+                CURRENT.remove();
+                return;
+            }
+            CURRENT.set(parent);
+            if (parent.maxInnerName == null || count > parent.maxInner) {
+                parent.maxInner = count;
+                parent.maxInnerName = name;
+            }
+        }
+    }
+}
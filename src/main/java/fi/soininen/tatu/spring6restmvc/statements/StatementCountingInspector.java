@@ -0,0 +1,16 @@
+package fi.soininen.tatu.spring6restmvc.statements;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Registered as Hibernate's statement inspector; feeds every prepared statement to {@link StatementCounter}
+ * and leaves the SQL unchanged.
+ */
+public class StatementCountingInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        StatementCounter.statementPrepared(sql);
+        return sql;
+    }
+}
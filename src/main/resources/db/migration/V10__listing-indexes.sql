@@ -0,0 +1,10 @@
+-- Listings sort by beer name with the id as tie-breaker, optionally filtered by style; with these the sort and the
+-- keyset seek are index range reads instead of a filesort over the table.
+CREATE INDEX ix_beer_name_id ON beer (beer_name, id);
+CREATE INDEX ix_beer_style_name_id ON beer (beer_style, beer_name, id);
+CREATE INDEX ix_beer_upc ON beer (upc);
+CREATE INDEX ix_beer_updated_date ON beer (updated_date);
+
+-- Order pages are newest first, overall and per customer
+CREATE INDEX ix_beer_order_created_date_id ON beer_order (created_date DESC, id);
+CREATE INDEX ix_beer_order_customer_created ON beer_order (customer_id, created_date DESC, id);
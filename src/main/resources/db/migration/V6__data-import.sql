@@ -0,0 +1,8 @@
+DROP TABLE IF EXISTS data_import;
+
+CREATE TABLE data_import (
+    name          VARCHAR(100) NOT NULL PRIMARY KEY,
+    checksum      VARCHAR(64) NOT NULL,
+    row_count     INTEGER,
+    imported_date DATETIME(6) DEFAULT NULL
+) ENGINE = InnoDB;
@@ -0,0 +1,6 @@
+DROP TABLE IF EXISTS replica_heartbeat;
+
+CREATE TABLE replica_heartbeat (
+    id   INTEGER NOT NULL PRIMARY KEY,
+    beat DATETIME(6) NOT NULL
+) ENGINE = InnoDB;
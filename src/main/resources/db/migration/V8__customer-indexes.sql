@@ -0,0 +1,2 @@
+create index ix_customer_name_id on customer (name, id);
+create index ix_customer_email on customer (email);
@@ -0,0 +1,91 @@
+-- Ids move from varchar(36) text to binary(16). Existing random ids keep their value, only new rows get
+-- time-ordered ids. Each column goes through varbinary(36) so the text can be rewritten as 16 raw bytes in place,
+-- keeping primary keys, unique keys and secondary indexes.
+
+ALTER TABLE beer_order
+    DROP FOREIGN KEY beer_order_ibfk_1,
+    DROP FOREIGN KEY bos_shipment_fk;
+
+ALTER TABLE beer_order_line
+    DROP FOREIGN KEY beer_order_line_ibfk_1,
+    DROP FOREIGN KEY beer_order_line_ibfk_2;
+
+ALTER TABLE beer_category
+    DROP FOREIGN KEY pc_beer_id_fk,
+    DROP FOREIGN KEY pc_category_id_fk;
+
+ALTER TABLE beer_order_shipment
+    DROP FOREIGN KEY bos_pk;
+
+ALTER TABLE beer MODIFY id VARBINARY(36) NOT NULL;
+UPDATE beer SET id = UNHEX(REPLACE(id, '-', ''));
+ALTER TABLE beer MODIFY id BINARY(16) NOT NULL;
+
+ALTER TABLE customer MODIFY id VARBINARY(36) NOT NULL;
+UPDATE customer SET id = UNHEX(REPLACE(id, '-', ''));
+ALTER TABLE customer MODIFY id BINARY(16) NOT NULL;
+
+ALTER TABLE category MODIFY id VARBINARY(36) NOT NULL;
+UPDATE category SET id = UNHEX(REPLACE(id, '-', ''));
+ALTER TABLE category MODIFY id BINARY(16) NOT NULL;
+
+ALTER TABLE beer_category
+    MODIFY beer_id VARBINARY(36) NOT NULL,
+    MODIFY category_id VARBINARY(36) NOT NULL;
+UPDATE beer_category
+SET beer_id     = UNHEX(REPLACE(beer_id, '-', '')),
+    category_id = UNHEX(REPLACE(category_id, '-', ''));
+ALTER TABLE beer_category
+    MODIFY beer_id BINARY(16) NOT NULL,
+    MODIFY category_id BINARY(16) NOT NULL;
+
+ALTER TABLE beer_order
+    MODIFY id VARBINARY(36) NOT NULL,
+    MODIFY customer_id VARBINARY(36) DEFAULT NULL,
+    MODIFY beer_order_shipment_id VARBINARY(36) DEFAULT NULL;
+UPDATE beer_order
+SET id                     = UNHEX(REPLACE(id, '-', '')),
+    customer_id            = UNHEX(REPLACE(customer_id, '-', '')),
+    beer_order_shipment_id = UNHEX(REPLACE(beer_order_shipment_id, '-', ''));
+ALTER TABLE beer_order
+    MODIFY id BINARY(16) NOT NULL,
+    MODIFY customer_id BINARY(16) DEFAULT NULL,
+    MODIFY beer_order_shipment_id BINARY(16) DEFAULT NULL;
+
+ALTER TABLE beer_order_line
+    MODIFY id VARBINARY(36) NOT NULL,
+    MODIFY beer_id VARBINARY(36) DEFAULT NULL,
+    MODIFY beer_order_id VARBINARY(36) DEFAULT NULL;
+UPDATE beer_order_line
+SET id            = UNHEX(REPLACE(id, '-', '')),
+    beer_id       = UNHEX(REPLACE(beer_id, '-', '')),
+    beer_order_id = UNHEX(REPLACE(beer_order_id, '-', ''));
+ALTER TABLE beer_order_line
+    MODIFY id BINARY(16) NOT NULL,
+    MODIFY beer_id BINARY(16) DEFAULT NULL,
+    MODIFY beer_order_id BINARY(16) DEFAULT NULL;
+
+ALTER TABLE beer_order_shipment
+    MODIFY id VARBINARY(36) NOT NULL,
+    MODIFY beer_order_id VARBINARY(36);
+UPDATE beer_order_shipment
+SET id            = UNHEX(REPLACE(id, '-', '')),
+    beer_order_id = UNHEX(REPLACE(beer_order_id, '-', ''));
+ALTER TABLE beer_order_shipment
+    MODIFY id BINARY(16) NOT NULL,
+    MODIFY beer_order_id BINARY(16);
+
+ALTER TABLE beer_order
+    ADD CONSTRAINT bo_customer_fk FOREIGN KEY (customer_id) REFERENCES customer (id),
+    ADD CONSTRAINT bos_shipment_fk FOREIGN KEY (beer_order_shipment_id) REFERENCES beer_order_shipment (id);
+
+ALTER TABLE beer_order_line
+    ADD CONSTRAINT bol_beer_order_fk FOREIGN KEY (beer_order_id) REFERENCES beer_order (id),
+    ADD CONSTRAINT bol_beer_fk FOREIGN KEY (beer_id) REFERENCES beer (id);
+
+ALTER TABLE beer_category
+    ADD CONSTRAINT pc_beer_id_fk FOREIGN KEY (beer_id) REFERENCES beer (id),
+    ADD CONSTRAINT pc_category_id_fk FOREIGN KEY (category_id) REFERENCES category (id);
+
+ALTER TABLE beer_order_shipment
+    ADD CONSTRAINT bos_pk FOREIGN KEY (beer_order_id) REFERENCES beer_order (id);
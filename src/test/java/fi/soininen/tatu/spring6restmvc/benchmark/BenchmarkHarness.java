@@ -0,0 +1,74 @@
+package fi.soininen.tatu.spring6restmvc.benchmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+
+/**
+ * Timing and reporting shared by the {@link BenchmarkTest} classes. Every result is one line on the
+ * {@code benchmark} logger, so it lands next to the application's own log output instead of on stdout.
+ */
+public final class BenchmarkHarness {
+
+    private static final Logger log = LoggerFactory.getLogger("benchmark");
+
+    private BenchmarkHarness() {
+    }
+
+    /**
+     * Runs {@code task} once and returns its result with the wall-clock time it took.
+     */
+    public static <T> Timed<T> time(Callable<T> task) throws Exception {
+        long start = System.nanoTime();
+        T result = task.call();
+        return new Timed<>(result, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    public static Duration time(Task task) throws Exception {
+        return time(() -> {
+            task.run();
+            return null;
+        }).elapsed();
+    }
+
+    /**
+     * Average time of {@code rounds} runs of {@code task}, after one untimed warm-up run.
+     */
+    public static Duration average(int rounds, Callable<?> task) throws Exception {
+        task.call();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            task.call();
+        }
+        return Duration.ofNanos((System.nanoTime() - start) / rounds);
+    }
+
+    /**
+     * Logs one result line; {@code format} is a {@link String#format} pattern, formatted in the root locale.
+     */
+    public static void report(String format, Object... args) {
+        if (log.isInfoEnabled()) {
+            log.info(String.format(Locale.ROOT, format, args));
+        }
+    }
+
+    public static double millis(Duration duration) {
+        return duration.toNanos() / 1_000_000.0;
+    }
+
+    public static double seconds(Duration duration) {
+        return duration.toNanos() / 1_000_000_000.0;
+    }
+
+    @FunctionalInterface
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    public record Timed<T>(T result, Duration elapsed) {
+    }
+}
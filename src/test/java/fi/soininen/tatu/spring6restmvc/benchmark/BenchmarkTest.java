@@ -0,0 +1,23 @@
+package fi.soininen.tatu.spring6restmvc.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a benchmark or load test that needs a database or a running server, so it does not fit a JMH fork in
+ * {@code src/jmh}. Such tests are skipped unless the build runs with {@code -Dbenchmark=true}, and report their
+ * numbers through {@link BenchmarkHarness}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public @interface BenchmarkTest {
+}
@@ -0,0 +1,83 @@
+package fi.soininen.tatu.spring6restmvc.bootstrap;
+
+import fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness;
+import fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkTest;
+import fi.soininen.tatu.spring6restmvc.repositories.BeerRepository;
+import fi.soininen.tatu.spring6restmvc.repositories.DataImportRepository;
+import fi.soininen.tatu.spring6restmvc.services.BeerCsvServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness.millis;
+import static fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness.report;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Times the beer CSV import for the bundled file and for a copy repeated ten times, then the checksum skip.
+ * Run with {@code mvn test -Dtest=BeerCsvImporterBenchmarkTest -Dbenchmark=true}.
+ */
+@BenchmarkTest
+@DataJpaTest
+@Import({BeerCsvImporter.class, BeerCsvServiceImpl.class})
+class BeerCsvImporterBenchmarkTest {
+
+    static final int ROUNDS = 3;
+
+    @Autowired
+    BeerCsvImporter beerCsvImporter;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    DataImportRepository dataImportRepository;
+
+    @Test
+    void timeImport() throws Exception {
+        Resource original = new ClassPathResource(BootstrapData.BEER_CSV);
+        Resource tenTimes = repeat(original, 10);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            time("1x", original);
+            time("10x", tenTimes);
+        }
+
+        BenchmarkHarness.Timed<Integer> skipped =
+                BenchmarkHarness.time(() -> beerCsvImporter.importBeers("10x", tenTimes));
+        assertThat(skipped.result()).isZero();
+        report("%-4s skipped on checksum in %6.1f ms", "10x", millis(skipped.elapsed()));
+    }
+
+    private void time(String name, Resource csv) throws Exception {
+        beerRepository.deleteAllInBatch();
+        dataImportRepository.deleteAllInBatch();
+
+        BenchmarkHarness.Timed<Integer> imported = BenchmarkHarness.time(() -> beerCsvImporter.importBeers(name, csv));
+        report("%-4s %6d rows in %6.1f ms", name, imported.result(), millis(imported.elapsed()));
+    }
+
+    private static Resource repeat(Resource csv, int times) throws IOException {
+        List<String> lines;
+        try (InputStream in = csv.getInputStream()) {
+            lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+
+        List<String> repeated = new ArrayList<>(lines);
+        for (int i = 1; i < times; i++) {
+            repeated.addAll(lines.subList(1, lines.size()));
+        }
+
+        return new ByteArrayResource(String.join("\n", repeated).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,103 @@
+package fi.soininen.tatu.spring6restmvc.bootstrap;
+
+import fi.soininen.tatu.spring6restmvc.repositories.BeerRepository;
+import fi.soininen.tatu.spring6restmvc.repositories.DataImportRepository;
+import fi.soininen.tatu.spring6restmvc.services.BeerCsvServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({BeerCsvImporter.class, BeerCsvServiceImpl.class})
+class BeerCsvImporterTest {
+
+    @Autowired
+    BeerCsvImporter beerCsvImporter;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    DataImportRepository dataImportRepository;
+
+    // Outside a test transaction, so the import commits or rolls back on its own
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void testReadFailureRollsBackImport() {
+        Resource csv = new ClassPathResource(BootstrapData.BEER_CSV);
+        // The checksum pass reads the whole file; the import breaks after most of it has been parsed
+        Resource failing = new FailingOnSecondRead(csv, 400_000);
+
+        // opencsv wraps the read error in its own RuntimeException
+        assertThatThrownBy(() -> beerCsvImporter.importBeers(BootstrapData.BEER_CSV, failing))
+                .hasRootCauseInstanceOf(IOException.class)
+                .hasRootCauseMessage("Connection reset");
+
+        assertThat(beerRepository.count()).isZero();
+        assertThat(dataImportRepository.findById(BootstrapData.BEER_CSV)).isEmpty();
+    }
+
+    static class FailingOnSecondRead extends AbstractResource {
+
+        private final Resource resource;
+        private final long failAfterBytes;
+        private final AtomicInteger reads = new AtomicInteger();
+
+        FailingOnSecondRead(Resource resource, long failAfterBytes) {
+            this.resource = resource;
+            this.failAfterBytes = failAfterBytes;
+        }
+
+        @Override
+        public String getDescription() {
+            return "failing " + resource.getDescription();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            InputStream in = resource.getInputStream();
+            if (reads.incrementAndGet() == 1) {
+                return in;
+            }
+
+            return new FilterInputStream(in) {
+                long position;
+
+                @Override
+                public int read() throws IOException {
+                    failAtLimit(1);
+                    position++;
+                    return super.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    failAtLimit(len);
+                    int read = super.read(b, off, (int) Math.min(len, failAfterBytes - position));
+                    position += Math.max(read, 0);
+                    return read;
+                }
+
+                private void failAtLimit(int len) throws IOException {
+                    if (len > 0 && position >= failAfterBytes) {
+                        throw new IOException("Connection reset");
+                    }
+                }
+            };
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package fi.soininen.tatu.spring6restmvc.bootstrap;
 
+import fi.soininen.tatu.spring6restmvc.entities.DataImport;
 import fi.soininen.tatu.spring6restmvc.repositories.BeerRepository;
 import fi.soininen.tatu.spring6restmvc.repositories.CustomerRepository;
-import fi.soininen.tatu.spring6restmvc.services.BeerCsvService;
+import fi.soininen.tatu.spring6restmvc.repositories.DataImportRepository;
 import fi.soininen.tatu.spring6restmvc.services.BeerCsvServiceImpl;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,7 +15,7 @@ import org.springframework.context.annotation.Import;
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DataJpaTest
-@Import(BeerCsvServiceImpl.class)
+@Import({BeerCsvImporter.class, BeerCsvServiceImpl.class})
 class BootstrapDataTest {
 
     @Autowired
@@ -23,13 +25,19 @@ class BootstrapDataTest {
     CustomerRepository customerRepository;
 
     @Autowired
-    BeerCsvService csvService;
+    DataImportRepository dataImportRepository;
+
+    @Autowired
+    BeerCsvImporter beerCsvImporter;
+
+    @Autowired
+    EntityManager entityManager;
 
     BootstrapData bootstrapData;
 
     @BeforeEach
     void setUp() {
-        bootstrapData = new BootstrapData(beerRepository, customerRepository, csvService);
+        bootstrapData = new BootstrapData(beerRepository, customerRepository, beerCsvImporter);
     }
 
     @Test
@@ -39,9 +47,43 @@ class BootstrapDataTest {
         assertThat(beerRepository.count()).isEqualTo(2413);
         assertThat(customerRepository.count()).isEqualTo(3);
     }
-}
 
+    @Test
+    void testRunSkipsUnchangedCsv() throws Exception {
+        bootstrapData.run(null);
+
+        assertThat(dataImportRepository.findById(BootstrapData.BEER_CSV))
+                .hasValueSatisfying(dataImport -> assertThat(dataImport.getRowCount()).isEqualTo(2410));
+
+        beerRepository.deleteAllInBatch();
+        bootstrapData.run(null);
+
+        // Only the three seed beers come back; the recorded checksum still matches the file
+        assertThat(beerRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void testRunAdoptsCatalogLoadedBeforeImportsWereRecorded() throws Exception {
+        bootstrapData.run(null);
+        dataImportRepository.deleteAllInBatch();
+        entityManager.clear();
+
+        bootstrapData.run(null);
 
+        assertThat(beerRepository.count()).isEqualTo(2413);
+        assertThat(dataImportRepository.findById(BootstrapData.BEER_CSV))
+                .hasValueSatisfying(dataImport -> assertThat(dataImport.getRowCount()).isZero());
+    }
 
+    @Test
+    void testRunImportsChangedCsv() throws Exception {
+        bootstrapData.run(null);
+        DataImport dataImport = dataImportRepository.findById(BootstrapData.BEER_CSV).orElseThrow();
+        dataImport.setChecksum("checksum of an older file");
+        dataImportRepository.save(dataImport);
 
+        bootstrapData.run(null);
 
+        assertThat(beerRepository.count()).isEqualTo(2413 + 2410);
+    }
+}
@@ -0,0 +1,143 @@
+package fi.soininen.tatu.spring6restmvc.concurrency;
+
+import fi.soininen.tatu.spring6restmvc.config.ConcurrencyLimitConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void testShedsAboveLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("read", 2, 1, 10);
+
+        assertThat(limiter.tryAcquire()).isEqualTo(1);
+        assertThat(limiter.tryAcquire()).isEqualTo(2);
+        assertThat(limiter.tryAcquire()).isEqualTo(-1);
+        assertThat(limiter.getRejected()).isEqualTo(1);
+
+        limiter.release();
+        assertThat(limiter.tryAcquire()).isEqualTo(2);
+    }
+
+    @Test
+    void testLimitGrowsWhileLatencyHolds() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("read", 10, 1, 100);
+
+        for (int i = 0; i < 200; i++) {
+            int inFlight = limiter.tryAcquire();
+            limiter.release(FAST, limiter.getLimit(), false);
+            assertThat(inFlight).isPositive();
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(100);
+    }
+
+    @Test
+    void testLimitShrinksWhenLatencyRises() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("read", 50, 1, 100);
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+            limiter.release(FAST, 50, false);
+        }
+        int before = limiter.getLimit();
+
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire();
+            limiter.release(SLOW, limiter.getLimit(), false);
+        }
+
+        assertThat(limiter.getLimit()).isLessThan(before / 2);
+    }
+
+    @Test
+    void testLimitUnchangedWhenFarBelowIt() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("read", 40, 1, 100);
+
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire();
+            limiter.release(i < 10 ? FAST : SLOW, 1, false);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(40);
+    }
+
+    @Test
+    void testDroppedRequestsCutTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("write", 40, 2, 100);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+            limiter.release(FAST, 1, true);
+        }
+
+        assertThat(limiter.getLimit()).isLessThan(20);
+    }
+
+    @Test
+    void testFilterShedsPerEndpointClass() throws Exception {
+        AdaptiveConcurrencyLimiter reads = new AdaptiveConcurrencyLimiter("read", 1, 1, 1);
+        AdaptiveConcurrencyLimiter writes = new AdaptiveConcurrencyLimiter("write", 1, 1, 1);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(reads, writes);
+
+        reads.tryAcquire();
+
+        MockHttpServletResponse shed = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/beer"), shed, new MockFilterChain());
+        assertThat(shed.getStatus()).isEqualTo(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        assertThat(shed.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+
+        MockHttpServletResponse written = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("PUT", "/api/v1/beer/1"), written, new MockFilterChain());
+        assertThat(written.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(writes.getInFlight()).isZero();
+    }
+
+    @Test
+    void testFilterHoldsSlotUntilAsyncCompletes() throws Exception {
+        AdaptiveConcurrencyLimiter reads = new AdaptiveConcurrencyLimiter("read", 5, 1, 5);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(reads,
+                new AdaptiveConcurrencyLimiter("write", 5, 1, 5));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/beer/export");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> req.startAsync());
+        assertThat(reads.getInFlight()).isEqualTo(1);
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertThat(reads.getInFlight()).isZero();
+        assertThat(reads.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void testMetrics() {
+        AdaptiveConcurrencyLimiter reads = new AdaptiveConcurrencyLimiter("read", 3, 1, 10);
+        reads.tryAcquire();
+        reads.tryAcquire();
+        reads.tryAcquire();
+        reads.tryAcquire();
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new ConcurrencyLimitConfig().concurrencyLimitMetrics(List.of(reads)).bindTo(registry);
+
+        assertThat(registry.get("app.concurrency.limit").tag("class", "read").gauge().value()).isEqualTo(3);
+        assertThat(registry.get("app.concurrency.in.flight").tag("class", "read").gauge().value()).isEqualTo(3);
+        assertThat(registry.get("app.concurrency.rejected").tag("class", "read").functionCounter().count())
+                .isEqualTo(1);
+    }
+}
@@ -0,0 +1,77 @@
+package fi.soininen.tatu.spring6restmvc.concurrency;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "app.virtual-threads.enabled=true",
+        "app.virtual-threads.database-permit-timeout=200ms",
+        "spring.datasource.hikari.maximum-pool-size=2"
+})
+class PermitGatedDataSourceTest {
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    WebApplicationContext wac;
+
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(wac)
+                .apply(springSecurity())
+                .build();
+    }
+
+    @Test
+    void testOnePermitPerPooledConnection() throws Exception {
+        PermitGatedDataSource gated = (PermitGatedDataSource) dataSource;
+        assertThat(gated.getAvailablePermits()).isEqualTo(2);
+
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+        assertThat(gated.getAvailablePermits()).isZero();
+
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(DatabasePermitTimeoutException.class);
+
+        first.close();
+        first.close();
+        assertThat(gated.getAvailablePermits()).isEqualTo(1);
+
+        second.close();
+        assertThat(gated.getAvailablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void testPermitTimeoutIsServiceUnavailable() throws Exception {
+        try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+            mockMvc.perform(get("/api/v1/beer")
+                            .with(jwt()))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        }
+
+        mockMvc.perform(get("/api/v1/beer")
+                        .with(jwt()))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,151 @@
+package fi.soininen.tatu.spring6restmvc.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness;
+import fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkTest;
+import fi.soininen.tatu.spring6restmvc.model.BeerDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness.report;
+import static fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness.seconds;
+import static fi.soininen.tatu.spring6restmvc.controller.BeerControllerIntegrationTest.jwtRequestPostProcessor;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Creates and then updates the same number of beers through the single-item endpoints and through
+ * {@code POST /api/v1/beer/batch}, and reports items per second and JDBC statements prepared for each.
+ * Run with {@code mvn test -Dtest=BeerBatchBenchmarkTest -Dbenchmark=true}.
+ */
+@BenchmarkTest
+@DirtiesContext
+@SpringBootTest
+class BeerBatchBenchmarkTest {
+
+    static final int BEERS = 5_000;
+
+    @Autowired
+    WebApplicationContext wac;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    MockMvc mockMvc;
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(wac)
+                .apply(springSecurity())
+                .build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void compareSingleAndBatchWrites() throws Exception {
+        // Warm up both paths
+        singleCreate(beers("Warmup single", 200));
+        batch(beers("Warmup batch", 200));
+
+        List<BeerDto> singles = beers("Single", BEERS);
+        List<BeerDto> batched = beers("Batch", BEERS);
+
+        measure("single create", BEERS, () -> singleCreate(singles));
+        measure("batch create", BEERS, () -> batch(batched));
+
+        singles.forEach(beer -> beer.setPrice(new BigDecimal("7.77")));
+        batched.forEach(beer -> beer.setPrice(new BigDecimal("7.77")));
+
+        measure("single update", BEERS, () -> singleUpdate(singles));
+        measure("batch update", BEERS, () -> batch(batched));
+    }
+
+    private void singleCreate(List<BeerDto> beers) throws Exception {
+        for (BeerDto beer : beers) {
+            String location = mockMvc.perform(post(BeerController.BEER_PATH)
+                            .with(jwtRequestPostProcessor)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(beer)))
+                    .andExpect(status().isCreated())
+                    .andReturn().getResponse().getHeader("Location");
+
+            beer.setId(UUID.fromString(location.substring(location.lastIndexOf('/') + 1)));
+        }
+    }
+
+    private void singleUpdate(List<BeerDto> beers) throws Exception {
+        for (BeerDto beer : beers) {
+            mockMvc.perform(put(BeerController.BEER_PATH_ID, beer.getId())
+                            .with(jwtRequestPostProcessor)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(beer)))
+                    .andExpect(status().isNoContent());
+        }
+    }
+
+    private void batch(List<BeerDto> beers) throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (BeerDto beer : beers) {
+            body.append(objectMapper.writeValueAsString(beer)).append('\n');
+        }
+
+        String response = mockMvc.perform(post(BeerController.BEER_BATCH_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body.toString()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Keep the assigned ids so the update round targets the same rows
+        JsonNode results = objectMapper.readTree(response);
+        for (int i = 0; i < beers.size(); i++) {
+            beers.get(i).setId(UUID.fromString(results.get(i).get("id").asText()));
+        }
+    }
+
+    private void measure(String label, int items, BenchmarkHarness.Task task) throws Exception {
+        long statements = statistics.getPrepareStatementCount();
+
+        double seconds = seconds(BenchmarkHarness.time(task));
+
+        report("%-14s %6d items  %8.0f items/s  %7d statements prepared",
+                label, items, items / seconds, statistics.getPrepareStatementCount() - statements);
+    }
+
+    private static List<BeerDto> beers(String prefix, int count) {
+        List<BeerDto> beers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            beers.add(BeerDto.builder()
+                    .beerName(prefix + " " + i)
+                    .beerStyle(BeerStyle.values()[i % BeerStyle.values().length])
+                    .upc(String.valueOf(i))
+                    .price(new BigDecimal("5.55"))
+                    .quantityOnHand(i % 300)
+                    .build());
+        }
+        return beers;
+    }
+}
@@ -2,20 +2,31 @@ package fi.soininen.tatu.spring6restmvc.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import fi.soininen.tatu.spring6restmvc.entities.Beer;
+import fi.soininen.tatu.spring6restmvc.entities.Category;
+import fi.soininen.tatu.spring6restmvc.ids.TimeOrderedUuids;
 import fi.soininen.tatu.spring6restmvc.mappers.BeerMapper;
 import fi.soininen.tatu.spring6restmvc.model.BeerDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerPatchDto;
 import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import fi.soininen.tatu.spring6restmvc.model.CursorPage;
 import fi.soininen.tatu.spring6restmvc.repositories.BeerRepository;
+import fi.soininen.tatu.spring6restmvc.repositories.CategoryRepository;
+import fi.soininen.tatu.spring6restmvc.statements.MaxStatementsPerRequest;
+import jakarta.persistence.EntityManagerFactory;
 import org.hamcrest.core.IsNull;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.web.servlet.MockMvc;
@@ -28,8 +39,16 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
 
+import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -48,10 +67,19 @@ class BeerControllerIntegrationTest {
     @Autowired
     BeerMapper beerMapper;
 
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
 
     @Autowired
     ObjectMapper objectMapper;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
     @Autowired
     WebApplicationContext wac;
 
@@ -84,13 +112,17 @@ class BeerControllerIntegrationTest {
                 .build();
     }
 
+    static WebRequest webRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest());
+    }
+
     @Test
     void testUpdateNotFound() {
         UUID randomID = UUID.randomUUID();
         BeerDto empty = BeerDto.builder().build();
 
         assertThrows(NotFoundException.class, () -> {
-            beerController.updateById(randomID, empty);
+            beerController.updateById(randomID, empty, null);
         });
     }
 
@@ -108,7 +140,7 @@ class BeerControllerIntegrationTest {
         final String beerName = "UPDATED";
         dto.setBeerName(beerName);
 
-        ResponseEntity responseEntity = beerController.updateById(beer.getId(), dto);
+        ResponseEntity responseEntity = beerController.updateById(beer.getId(), dto, null);
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(204));
 
         Beer updatedBeer = beerRepository.findById(beer.getId()).get();
@@ -119,7 +151,7 @@ class BeerControllerIntegrationTest {
     void testBeerIdNotFound() {
         UUID randomID = UUID.randomUUID();
         assertThrows(NotFoundException.class, () -> {
-            beerController.getBeerById(randomID);
+            beerController.getBeerById(randomID, webRequest());
         });
     }
 
@@ -127,18 +159,93 @@ class BeerControllerIntegrationTest {
     void testGetById() {
         Beer beer = beerRepository.findAll().get(0);
 
-        BeerDto dto = beerController.getBeerById(beer.getId());
+        BeerDto dto = beerController.getBeerById(beer.getId(), webRequest());
 
         assertThat(dto).isNotNull();
     }
 
+    @Test
+    void testGetByIdServedFromSecondLevelCache() {
+        Beer beer = beerRepository.findAll().get(0);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        beerController.getBeerById(beer.getId(), webRequest());
+        long hits = statistics.getSecondLevelCacheHitCount();
+        long loads = statistics.getEntityLoadCount();
+
+        BeerDto dto = beerController.getBeerById(beer.getId(), webRequest());
+
+        assertThat(dto.getBeerName()).isEqualTo(beer.getBeerName());
+        assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThan(hits);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(loads);
+    }
+
+    @Test
+    void testUpdateReplacesCachedVersion() {
+        Beer beer = beerRepository.findAll().get(0);
+        BeerDto before = beerController.getBeerById(beer.getId(), webRequest());
+
+        BeerDto update = beerMapper.beerToBeerDto(beer);
+        update.setBeerName("Cached Then Updated");
+        beerController.updateById(beer.getId(), update, null);
+
+        BeerDto after = beerController.getBeerById(beer.getId(), webRequest());
+
+        assertThat(after.getBeerName()).isEqualTo("Cached Then Updated");
+        assertThat(after.getVersion()).isGreaterThan(before.getVersion());
+
+        update.setBeerName(beer.getBeerName());
+        beerController.updateById(beer.getId(), update, null);
+    }
+
+    @Test
+    void testPatchEvictsOnlyPatchedBeerFromSecondLevelCache() {
+        List<Beer> beers = beerRepository.findAll();
+        Beer beer = beers.get(0);
+        Beer untouched = beers.get(1);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        beerController.getBeerById(beer.getId(), webRequest());
+        beerController.getBeerById(untouched.getId(), webRequest());
+
+        BeerStyle style = beer.getBeerStyle() == BeerStyle.PORTER ? BeerStyle.STOUT : BeerStyle.PORTER;
+        beerController.patchById(beer.getId(), BeerPatchDto.builder()
+                .version(beer.getVersion())
+                .beerName("Cached Then Patched")
+                .beerStyle(style)
+                .build(), null);
+
+        long hits = statistics.getSecondLevelCacheHitCount();
+        beerController.getBeerById(untouched.getId(), webRequest());
+        assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThan(hits);
+
+        BeerDto after = beerController.getBeerById(beer.getId(), webRequest());
+        assertThat(after.getBeerName()).isEqualTo("Cached Then Patched");
+        assertThat(after.getBeerStyle()).isEqualTo(style);
+        assertThat(after.getVersion()).isEqualTo(beer.getVersion() + 1);
+
+        beerController.patchById(beer.getId(), BeerPatchDto.builder()
+                .version(after.getVersion())
+                .beerName(beer.getBeerName())
+                .beerStyle(beer.getBeerStyle())
+                .build(), null);
+    }
+
     @Test
     void testListBeers() {
-        Page<BeerDto> dtos = beerController.listBeers(null, null, false, 1, 25);
+        Page<BeerDto> dtos = beerController.listBeers(null, null, false, 1, 25, webRequest());
 
         assertThat(dtos).hasSize(25);
     }
 
+    @Test
+    @MaxStatementsPerRequest(2)
+    void testListBeersStatementBudget() throws Exception {
+        mockMvc.perform(get(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("beerStyle", BeerStyle.IPA.name()))
+                .andExpect(status().isOk());
+    }
+
     @Test
     void testListBeersByName() throws Exception {
         mockMvc.perform(
@@ -149,6 +256,18 @@ class BeerControllerIntegrationTest {
                 .andExpect(jsonPath("$.content.size()", is(25)));
     }
 
+    @Test
+    void testListBeersByNameTotalMatchesLike() throws Exception {
+        long likeTotal = beerRepository.countByBeerNameIsLikeIgnoreCase("%IPA%");
+
+        mockMvc.perform(
+                    get(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("beerName", "IPA"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements", is((int) likeTotal)));
+    }
+
     @Disabled
     @Test
     void testListBeersByNameWithBasicAuth() throws Exception {
@@ -226,13 +345,128 @@ class BeerControllerIntegrationTest {
                 .andExpect(jsonPath("$.content.[0].quantityOnHand").value(IsNull.notNullValue()));
     }
 
+    @Test
+    void testListBeersSliceByStyle() throws Exception {
+        mockMvc.perform(
+                    get(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("beerStyle", BeerStyle.IPA.name())
+                        .queryParam("slice", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()", is(25)))
+                .andExpect(jsonPath("$.last", is(false)))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    void testCountBeersEvictedOnWrite() throws Exception {
+        assertThat(beerController.countBeers(null, BeerStyle.IPA)).isEqualTo(548);
+
+        ResponseEntity responseEntity = beerController.handlePost(BeerDto.builder()
+                .beerName("Count Me IPA")
+                .beerStyle(BeerStyle.IPA)
+                .upc("123")
+                .price(new java.math.BigDecimal("9.99"))
+                .build());
+        String[] locationUUID = responseEntity.getHeaders().getLocation().getPath().split("/");
+
+        assertThat(beerController.countBeers(null, BeerStyle.IPA)).isEqualTo(549);
+
+        beerController.deleteById(UUID.fromString(locationUUID[4]));
+
+        assertThat(beerController.countBeers(null, BeerStyle.IPA)).isEqualTo(548);
+    }
+
+    @Test
+    void testCountBeersByName() throws Exception {
+        mockMvc.perform(
+                    get(BeerController.BEER_COUNT_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("beerName", "IPA"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("336"));
+    }
+
+    @Test
+    void testListBeersAfterWalksAllPages() throws Exception {
+        Set<UUID> seen = new HashSet<>();
+        String after = "";
+        String previousName = "";
+
+        do {
+            MvcResult result = mockMvc.perform(
+                            get(BeerController.BEER_PATH)
+                                .with(jwtRequestPostProcessor)
+                                .queryParam("beerStyle", BeerStyle.IPA.name())
+                                .queryParam("after", after)
+                                .queryParam("pageSize", "100"))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            CursorPage<BeerDto> page = objectMapper.readValue(result.getResponse().getContentAsString(),
+                    objectMapper.getTypeFactory().constructParametricType(CursorPage.class, BeerDto.class));
+
+            for (BeerDto beer : page.getContent()) {
+                assertThat(beer.getBeerName()).isGreaterThanOrEqualTo(previousName);
+                assertThat(seen.add(beer.getId())).isTrue();
+                previousName = beer.getBeerName();
+            }
+
+            after = page.getNext();
+        } while (after != null);
+
+        assertThat(seen).hasSize(548);
+    }
+
+    @Test
+    void testListBeersAfterByNameHideInventory() throws Exception {
+        mockMvc.perform(
+                    get(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("beerName", "IPA")
+                        .queryParam("showInventory", "false")
+                        .queryParam("after", ""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()", is(25)))
+                .andExpect(jsonPath("$.next").value(IsNull.notNullValue()))
+                .andExpect(jsonPath("$.content.[0].quantityOnHand").value(IsNull.nullValue()));
+    }
+
+    @Test
+    void testListBeersPageSizeBelowOneUsesDefault() throws Exception {
+        mockMvc.perform(
+                    get(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("after", "")
+                        .queryParam("pageSize", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()", is(25)))
+                .andExpect(jsonPath("$.next").value(IsNull.notNullValue()));
+
+        mockMvc.perform(
+                    get(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("pageSize", "-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()", is(25)));
+    }
+
+    @Test
+    void testListBeersAfterBadCursor() throws Exception {
+        mockMvc.perform(
+                    get(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("after", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Rollback
     @Transactional
     @Test
     void testEmptyList() {
 
         beerRepository.deleteAll();
-        Page<BeerDto> dtos = beerController.listBeers(null, null, false, 1, 25);
+        Page<BeerDto> dtos = beerController.listBeers(null, null, false, 1, 25, webRequest());
 
         assertThat(dtos).isEmpty();
     }
@@ -243,6 +477,9 @@ class BeerControllerIntegrationTest {
     void testSaveNewBeer() {
         BeerDto beerDto = BeerDto.builder()
                 .beerName("New Beer")
+                .beerStyle(BeerStyle.LAGER)
+                .upc("123")
+                .price(new BigDecimal("9.99"))
                 .build();
 
         ResponseEntity responseEntity = beerController.handlePost(beerDto);
@@ -278,6 +515,142 @@ class BeerControllerIntegrationTest {
         });
     }
 
+    // Not transactional: the insert has to reach the database inside the request
+    @Test
+    @MaxStatementsPerRequest(1)
+    void testCreateBeerUnderClientIdIsOneInsert() throws Exception {
+        UUID beerId = TimeOrderedUuids.next();
+
+        try {
+            mockMvc.perform(post(BeerController.BEER_PATH)
+                            .with(jwtRequestPostProcessor)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(clientIdBeer(beerId))))
+                    .andExpect(status().isCreated())
+                    .andExpect(header().string(HttpHeaders.LOCATION, BeerController.BEER_PATH + "/" + beerId));
+
+            assertThat(beerRepository.findById(beerId)).isPresent();
+        } finally {
+            beerRepository.deleteById(beerId);
+        }
+    }
+
+    @Test
+    void testCreateBeerRetryUnderSameIdKeepsFirst() throws Exception {
+        UUID beerId = TimeOrderedUuids.next();
+        BeerDto beer = clientIdBeer(beerId);
+
+        try {
+            mockMvc.perform(post(BeerController.BEER_PATH)
+                            .with(jwtRequestPostProcessor)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(beer)))
+                    .andExpect(status().isCreated());
+
+            beer.setBeerName("Second attempt");
+            mockMvc.perform(post(BeerController.BEER_PATH)
+                            .with(jwtRequestPostProcessor)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(beer)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.LOCATION, BeerController.BEER_PATH + "/" + beerId));
+
+            assertThat(beerRepository.findById(beerId).get().getBeerName()).isEqualTo("Client Id Beer");
+        } finally {
+            beerRepository.deleteById(beerId);
+        }
+    }
+
+    static BeerDto clientIdBeer(UUID beerId) {
+        return BeerDto.builder()
+                .id(beerId)
+                // A version sent along must not turn the create into a merge
+                .version(3)
+                .beerName("Client Id Beer")
+                .beerStyle(BeerStyle.LAGER)
+                .upc("777")
+                .price(new BigDecimal("4.20"))
+                .build();
+    }
+
+    // Not transactional: only committed beers reach the second-level cache
+    @Test
+    void testDeleteEvictsOnlyDeletedBeerFromSecondLevelCache() throws Exception {
+        Beer untouched = beerRepository.findAll().get(0);
+        Beer beer = beerRepository.saveAndFlush(Beer.builder()
+                .beerName("Cached Then Deleted")
+                .beerStyle(BeerStyle.LAGER)
+                .upc("777")
+                .price(new BigDecimal("4.20"))
+                .build());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        beerController.getBeerById(beer.getId(), webRequest());
+        beerController.getBeerById(untouched.getId(), webRequest());
+
+        mockMvc.perform(delete(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(jwtRequestPostProcessor))
+                .andExpect(status().isNoContent());
+
+        long hits = statistics.getSecondLevelCacheHitCount();
+        beerController.getBeerById(untouched.getId(), webRequest());
+        assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThan(hits);
+
+        assertThat(beerRepository.findById(beer.getId())).isEmpty();
+    }
+
+    @Rollback
+    @Transactional
+    @Test
+    @MaxStatementsPerRequest(2)
+    void testDeleteBeerClearsCategoriesWithoutLoading() throws Exception {
+        Beer beer = beerRepository.findAll().get(0);
+        Category category = categoryRepository.saveAndFlush(Category.builder().description("Delete test").build());
+        jdbcTemplate.update("insert into beer_category (beer_id, category_id) values (?, ?)",
+                TimeOrderedUuids.toBytes(beer.getId()), TimeOrderedUuids.toBytes(category.getId()));
+
+        mockMvc.perform(delete(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(jwtRequestPostProcessor))
+                .andExpect(status().isNoContent());
+
+        assertThat(beerRepository.findBeerDtosByIdIn(Set.of(beer.getId()), true)).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("select count(*) from beer_category where category_id = ?",
+                Integer.class, TimeOrderedUuids.toBytes(category.getId()))).isZero();
+
+        mockMvc.perform(delete(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(jwtRequestPostProcessor))
+                .andExpect(status().isNotFound());
+    }
+
+    @Rollback
+    @Transactional
+    @Test
+    @MaxStatementsPerRequest(3)
+    void testDeleteBeersInBulk() throws Exception {
+        List<UUID> beerIds = beerRepository.findAll().subList(0, 3).stream()
+                .map(Beer::getId)
+                .toList();
+        List<UUID> requested = new ArrayList<>(beerIds);
+        requested.add(UUID.randomUUID());
+        requested.add(beerIds.get(0));
+
+        mockMvc.perform(delete(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requested)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requested", is(4)))
+                .andExpect(jsonPath("$.deleted", is(3)))
+                .andExpect(jsonPath("$.ordered.length()", is(0)));
+
+        assertThat(beerRepository.findBeerDtosByIdIn(beerIds, true)).isEmpty();
+
+        mockMvc.perform(delete(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
     // This test was to showcase optimistic locking with JPA
     @Disabled
     @Test
@@ -310,4 +683,315 @@ class BeerControllerIntegrationTest {
 
         System.out.println(result2.getResponse().getContentAsString());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetBeerByIdNotModified() throws Exception {
+        Beer beer = beerRepository.findAll().get(0);
+
+        String etag = mockMvc.perform(get(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(jwtRequestPostProcessor))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"" + beer.getVersion() + "\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void testListBeersNotModified() throws Exception {
+        String etag = mockMvc.perform(get(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("beerStyle", BeerStyle.IPA.name()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("beerStyle", BeerStyle.IPA.name())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("beerStyle", BeerStyle.IPA.name())
+                        .queryParam("pageNumber", "2")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Rollback
+    @Transactional
+    @Test
+    void testUpdateBeerIfMatch() throws Exception {
+        Beer beer = beerRepository.findAll().get(0);
+        BeerDto dto = beerMapper.beerToBeerDto(beer);
+        dto.setBeerName("Conditionally updated");
+        Integer version = beer.getVersion();
+
+        mockMvc.perform(put(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_MATCH, "W/\"" + version + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"" + (version + 1) + "\""));
+
+        assertThat(beerRepository.findById(beer.getId()).get().getBeerName()).isEqualTo("Conditionally updated");
+    }
+
+    @Rollback
+    @Transactional
+    @Test
+    void testUpdateBeerIfMatchStale() throws Exception {
+        Beer beer = beerRepository.findAll().get(0);
+        BeerDto dto = beerMapper.beerToBeerDto(beer);
+        dto.setBeerName("Lost update");
+
+        mockMvc.perform(put(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_MATCH, "W/\"" + (beer.getVersion() + 1) + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(put(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_MATCH, "not-a-tag")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Rollback
+    @Transactional
+    @Test
+    @MaxStatementsPerRequest(1)
+    void testPatchBeerIsOneUpdate() throws Exception {
+        Beer beer = beerRepository.findAll().get(0);
+        Integer version = beer.getVersion();
+
+        mockMvc.perform(patch(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_MATCH, "W/\"" + version + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"beerName\": \"Patched\", \"quantityOnHand\": 7}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"" + (version + 1) + "\""));
+
+        // Read columns directly; the bulk update does not touch entities already in the persistence context
+        BeerDto patched = beerRepository.findBeerDtosByIdIn(List.of(beer.getId()), true).get(0);
+        assertThat(patched.getBeerName()).isEqualTo("Patched");
+        assertThat(patched.getQuantityOnHand()).isEqualTo(7);
+        assertThat(patched.getUpc()).isEqualTo(beer.getUpc());
+        assertThat(patched.getVersion()).isEqualTo(version + 1);
+    }
+
+    @Rollback
+    @Transactional
+    @Test
+    void testPatchBeerVersionFromBody() throws Exception {
+        Beer beer = beerRepository.findAll().get(0);
+        BeerPatchDto patch = BeerPatchDto.builder()
+                .version(beer.getVersion())
+                .price(new BigDecimal("3.50"))
+                .build();
+
+        mockMvc.perform(patch(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(patch)))
+                .andExpect(status().isNoContent());
+
+        assertThat(beerRepository.findBeerDtosByIdIn(List.of(beer.getId()), true).get(0).getPrice())
+                .isEqualByComparingTo("3.50");
+    }
+
+    @Rollback
+    @Transactional
+    @Test
+    void testPatchBeerRejected() throws Exception {
+        Beer beer = beerRepository.findAll().get(0);
+        String ifMatch = "W/\"" + beer.getVersion() + "\"";
+
+        // Stale version
+        mockMvc.perform(patch(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_MATCH, "W/\"" + (beer.getVersion() + 1) + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"beerName\": \"Lost update\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        // Unknown beer
+        mockMvc.perform(patch(BeerController.BEER_PATH_ID, UUID.randomUUID())
+                        .with(jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_MATCH, ifMatch)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"beerName\": \"Nobody\"}"))
+                .andExpect(status().isNotFound());
+
+        // No version at all
+        mockMvc.perform(patch(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"beerName\": \"Unconditional\"}"))
+                .andExpect(status().isPreconditionRequired());
+
+        // Nothing to change, and a blank name
+        mockMvc.perform(patch(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_MATCH, ifMatch)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch(BeerController.BEER_PATH_ID, beer.getId())
+                        .with(jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_MATCH, ifMatch)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"beerName\": \" \"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testExportBeersNdjson() throws Exception {
+        MvcResult started = mockMvc.perform(get(BeerController.BEER_EXPORT_PATH)
+                        .with(jwtRequestPostProcessor))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize((int) beerRepository.count());
+
+        BeerDto first = objectMapper.readValue(lines[0], BeerDto.class);
+        assertThat(first.getId()).isNotNull();
+        assertThat(first.getBeerName()).isNotBlank();
+    }
+
+    @Test
+    void testExportBeersCsv() throws Exception {
+        MvcResult started = mockMvc.perform(get(BeerController.BEER_EXPORT_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("format", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines[0]).startsWith("id,version,beerName");
+        assertThat(lines).hasSize((int) beerRepository.count() + 1);
+    }
+
+    @Rollback
+    @Transactional
+    @Test
+    void testBatchCreateAndUpdate() throws Exception {
+        Beer existing = beerRepository.findAll().get(0);
+        BeerDto update = beerMapper.beerToBeerDto(existing);
+        update.setPrice(new BigDecimal("99.99"));
+        Integer version = existing.getVersion();
+
+        BeerDto stale = beerMapper.beerToBeerDto(beerRepository.findAll().get(1));
+        stale.setVersion(stale.getVersion() + 1);
+
+        List<BeerDto> batch = List.of(
+                newBeer("Batch Beer One"),
+                update,
+                newBeer(""),
+                newBeer("Batch Beer Two"),
+                BeerDto.builder().id(UUID.randomUUID()).beerName("Missing").beerStyle(BeerStyle.IPA)
+                        .upc("1").price(BigDecimal.ONE).build(),
+                stale);
+
+        long before = beerRepository.count();
+
+        mockMvc.perform(post(BeerController.BEER_BATCH_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(6)))
+                .andExpect(jsonPath("$[0].status", is("CREATED")))
+                .andExpect(jsonPath("$[0].id").isNotEmpty())
+                .andExpect(jsonPath("$[1].status", is("UPDATED")))
+                .andExpect(jsonPath("$[1].version", is(version + 1)))
+                .andExpect(jsonPath("$[2].status", is("INVALID")))
+                .andExpect(jsonPath("$[2].errors.beerName").exists())
+                .andExpect(jsonPath("$[3].status", is("CREATED")))
+                .andExpect(jsonPath("$[4].status", is("NOT_FOUND")))
+                .andExpect(jsonPath("$[5].status", is("CONFLICT")));
+
+        assertThat(beerRepository.count()).isEqualTo(before + 2);
+        assertThat(beerRepository.findById(existing.getId()).get().getPrice()).isEqualByComparingTo("99.99");
+    }
+
+    @Rollback
+    @Transactional
+    @Test
+    void testBatchNdjsonAcrossChunks() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1200; i++) {
+            body.append(objectMapper.writeValueAsString(newBeer("Ndjson Beer " + i))).append('\n');
+        }
+
+        long before = beerRepository.count();
+
+        mockMvc.perform(post(BeerController.BEER_BATCH_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(1200)))
+                .andExpect(jsonPath("$[1199].index", is(1199)))
+                .andExpect(jsonPath("$[1199].status", is("CREATED")));
+
+        assertThat(beerRepository.count()).isEqualTo(before + 1200);
+    }
+
+    @Rollback
+    @Transactional
+    @Test
+    void testBatchNdjsonStopsAtMalformedItem() throws Exception {
+        String body = objectMapper.writeValueAsString(newBeer("Ndjson Beer One")) + "\n"
+                + objectMapper.writeValueAsString(newBeer("Ndjson Beer Two")) + "\n"
+                + "{\"beerName\": \"Broken\", \"price\": \"not a number\"}\n"
+                + objectMapper.writeValueAsString(newBeer("Ndjson Beer Three")) + "\n";
+
+        long before = beerRepository.count();
+
+        mockMvc.perform(post(BeerController.BEER_BATCH_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(3)))
+                .andExpect(jsonPath("$[1].status", is("CREATED")))
+                .andExpect(jsonPath("$[2].index", is(2)))
+                .andExpect(jsonPath("$[2].status", is("INVALID")))
+                .andExpect(jsonPath("$[2].errors.item").exists());
+
+        assertThat(beerRepository.count()).isEqualTo(before + 2);
+    }
+
+    static BeerDto newBeer(String beerName) {
+        return BeerDto.builder()
+                .beerName(beerName)
+                .beerStyle(BeerStyle.LAGER)
+                .upc("123123")
+                .price(new BigDecimal("4.50"))
+                .quantityOnHand(10)
+                .build();
+    }
+}
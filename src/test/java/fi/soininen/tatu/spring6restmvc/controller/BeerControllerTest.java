@@ -3,6 +3,8 @@ package fi.soininen.tatu.spring6restmvc.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import fi.soininen.tatu.spring6restmvc.config.SpringSecurityConfigOAuth2;
 import fi.soininen.tatu.spring6restmvc.model.BeerDto;
+import fi.soininen.tatu.spring6restmvc.services.BeerBatchService;
+import fi.soininen.tatu.spring6restmvc.services.BeerExportService;
 import fi.soininen.tatu.spring6restmvc.services.BeerService;
 import fi.soininen.tatu.spring6restmvc.services.BeerServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
@@ -44,6 +46,12 @@ class BeerControllerTest {
     @MockBean
     BeerService beerService;
 
+    @MockBean
+    BeerExportService beerExportService;
+
+    @MockBean
+    BeerBatchService beerBatchService;
+
     BeerServiceImpl beerServiceImpl;
 
     // OAuth 2.0
@@ -205,6 +213,8 @@ class BeerControllerTest {
     void getBeerById() throws Exception {
         BeerDto testBeer = beerServiceImpl.listBeers(null, null, false, 1, 25).getContent().get(0);
 
+        given(beerService.getBeerVersion(testBeer.getId()))
+                .willReturn(Optional.of(testBeer.getVersion()));
         given(beerService.getBeerById(testBeer.getId()))
                 .willReturn(Optional.of(testBeer));
 
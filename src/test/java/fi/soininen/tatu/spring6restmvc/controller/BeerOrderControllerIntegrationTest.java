@@ -0,0 +1,371 @@
+package fi.soininen.tatu.spring6restmvc.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fi.soininen.tatu.spring6restmvc.entities.Beer;
+import fi.soininen.tatu.spring6restmvc.entities.BeerOrder;
+import fi.soininen.tatu.spring6restmvc.entities.BeerOrderLine;
+import fi.soininen.tatu.spring6restmvc.entities.Customer;
+import fi.soininen.tatu.spring6restmvc.ids.TimeOrderedUuids;
+import fi.soininen.tatu.spring6restmvc.model.BeerOrderCreateDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerOrderLineCreateDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import fi.soininen.tatu.spring6restmvc.repositories.BeerOrderRepository;
+import fi.soininen.tatu.spring6restmvc.repositories.BeerRepository;
+import fi.soininen.tatu.spring6restmvc.repositories.CustomerRepository;
+import fi.soininen.tatu.spring6restmvc.services.BeerOrderService;
+import fi.soininen.tatu.spring6restmvc.statements.MaxStatementsPerRequest;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static fi.soininen.tatu.spring6restmvc.controller.BeerControllerIntegrationTest.jwtRequestPostProcessor;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+class BeerOrderControllerIntegrationTest {
+
+    static final String CUSTOMER_REF = "Order controller test";
+
+    @Autowired
+    WebApplicationContext wac;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    BeerOrderRepository beerOrderRepository;
+
+    @Autowired
+    BeerOrderService beerOrderService;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(wac)
+                .apply(springSecurity())
+                .build();
+    }
+
+    @Rollback
+    @Transactional
+    @Test
+    void testPlaceOrderAllocatesStock() throws Exception {
+        Customer customer = customerRepository.findAll().get(0);
+        Beer first = saveBeer(10);
+        Beer second = saveBeer(5);
+
+        MvcResult result = mockMvc.perform(post(BeerOrderController.BEER_ORDER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(order(customer.getId(),
+                                line(first.getId(), 3), line(second.getId(), 5), line(first.getId(), 2)))))
+                .andExpect(status().isCreated())
+                .andExpect(header().exists("Location"))
+                .andReturn();
+
+        String location = result.getResponse().getHeader("Location");
+        UUID beerOrderId = UUID.fromString(location.substring(location.lastIndexOf('/') + 1));
+
+        entityManager.flush();
+        entityManager.clear();
+        assertThat(beerRepository.findById(first.getId()).get().getQuantityOnHand()).isEqualTo(5);
+        assertThat(beerRepository.findById(second.getId()).get().getQuantityOnHand()).isZero();
+
+        BeerOrder beerOrder = beerOrderRepository.findById(beerOrderId).get();
+        assertThat(beerOrder.getCustomer().getId()).isEqualTo(customer.getId());
+        assertThat(beerOrder.getBeerOrderLines()).hasSize(2)
+                .allSatisfy(line -> assertThat(line.getQuantityAllocated()).isEqualTo(line.getOrderQuantity()))
+                .extracting(BeerOrderLine::getOrderQuantity)
+                .containsExactlyInAnyOrder(5, 5);
+    }
+
+    // Not transactional: the retry has to meet the first order's committed row
+    @Test
+    void testPlaceOrderRetryUnderSameIdAllocatesOnce() throws Exception {
+        Customer customer = customerRepository.findAll().get(0);
+        Beer beer = saveBeer(10);
+        BeerOrderCreateDto order = order(customer.getId(), line(beer.getId(), 4));
+        order.setId(TimeOrderedUuids.next());
+
+        try {
+            mockMvc.perform(post(BeerOrderController.BEER_ORDER_PATH)
+                            .with(jwtRequestPostProcessor)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(order)))
+                    .andExpect(status().isCreated())
+                    .andExpect(header().string("Location", BeerOrderController.BEER_ORDER_PATH + "/" + order.getId()));
+
+            mockMvc.perform(post(BeerOrderController.BEER_ORDER_PATH)
+                            .with(jwtRequestPostProcessor)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(order)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Location", BeerOrderController.BEER_ORDER_PATH + "/" + order.getId()));
+
+            assertThat(jdbcTemplate.queryForObject("select quantity_on_hand from beer where id = ?", Integer.class,
+                    TimeOrderedUuids.toBytes(beer.getId()))).isEqualTo(6);
+        } finally {
+            deleteOrders(List.of(beer));
+        }
+    }
+
+    // Not transactional: only committed beers reach the second-level cache
+    @Test
+    void testPlaceOrderEvictsOnlyAllocatedBeersFromSecondLevelCache() throws Exception {
+        Customer customer = customerRepository.findAll().get(0);
+        Beer ordered = saveBeer(10);
+        Beer untouched = saveBeer(10);
+
+        try {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            beerRepository.findById(ordered.getId());
+            beerRepository.findById(untouched.getId());
+
+            mockMvc.perform(post(BeerOrderController.BEER_ORDER_PATH)
+                            .with(jwtRequestPostProcessor)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(order(customer.getId(),
+                                    line(ordered.getId(), 4)))))
+                    .andExpect(status().isCreated());
+
+            long hits = statistics.getSecondLevelCacheHitCount();
+            assertThat(beerRepository.findById(untouched.getId())).isPresent();
+            assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThan(hits);
+
+            // The allocated beer alone is read back from the database, with the stock the order left
+            long misses = statistics.getSecondLevelCacheMissCount();
+            assertThat(beerRepository.findById(ordered.getId()).get().getQuantityOnHand()).isEqualTo(6);
+            assertThat(statistics.getSecondLevelCacheMissCount()).isGreaterThan(misses);
+        } finally {
+            deleteOrders(List.of(ordered, untouched));
+        }
+    }
+
+    @Rollback
+    @Transactional
+    @Test
+    void testOrderedBeerAndCustomerAreNotDeleted() throws Exception {
+        Customer customer = customerRepository.findAll().get(0);
+        Beer ordered = saveBeer(10);
+        Beer unordered = saveBeer(10);
+        beerOrderService.placeOrder(order(customer.getId(), line(ordered.getId(), 1)));
+        entityManager.flush();
+
+        mockMvc.perform(delete(BeerController.BEER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(ordered.getId(), unordered.getId()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requested").value(2))
+                .andExpect(jsonPath("$.deleted").value(1))
+                .andExpect(jsonPath("$.ordered[0]").value(ordered.getId().toString()));
+
+        mockMvc.perform(delete(BeerController.BEER_PATH_ID, ordered.getId())
+                        .with(jwtRequestPostProcessor))
+                .andExpect(status().isConflict());
+
+        mockMvc.perform(delete(CustomerController.CUSTOMER_PATH_ID, customer.getId())
+                        .with(jwtRequestPostProcessor))
+                .andExpect(status().isConflict());
+    }
+
+    // Not transactional: the allocation that succeeded before the failing line has to be rolled back by the
+    // service's own transaction, not by the test's
+    @Test
+    void testPlaceOrderInsufficientStockAllocatesNothing() throws Exception {
+        Customer customer = customerRepository.findAll().get(0);
+        Beer plenty = saveBeer(100);
+        Beer scarce = saveBeer(1);
+        long orders = beerOrderRepository.count();
+
+        try {
+            mockMvc.perform(post(BeerOrderController.BEER_ORDER_PATH)
+                            .with(jwtRequestPostProcessor)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(order(customer.getId(),
+                                    line(plenty.getId(), 10), line(scarce.getId(), 2)))))
+                    .andExpect(status().isConflict())
+                    .andExpect(jsonPath("$[0].beerId").value(scarce.getId().toString()));
+
+            assertThat(beerRepository.findById(plenty.getId()).get().getQuantityOnHand()).isEqualTo(100);
+            assertThat(beerRepository.findById(scarce.getId()).get().getQuantityOnHand()).isEqualTo(1);
+            assertThat(beerOrderRepository.count()).isEqualTo(orders);
+        } finally {
+            beerRepository.deleteAll(List.of(plenty, scarce));
+        }
+    }
+
+    @Test
+    void testPlaceOrderUnknownBeer() throws Exception {
+        Customer customer = customerRepository.findAll().get(0);
+
+        mockMvc.perform(post(BeerOrderController.BEER_ORDER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(order(customer.getId(),
+                                line(UUID.randomUUID(), 1)))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testPlaceOrderUnknownCustomer() throws Exception {
+        Beer beer = beerRepository.findAll().get(0);
+
+        mockMvc.perform(post(BeerOrderController.BEER_ORDER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(order(UUID.randomUUID(), line(beer.getId(), 1)))))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testPlaceOrderWithoutLines() throws Exception {
+        Customer customer = customerRepository.findAll().get(0);
+
+        mockMvc.perform(post(BeerOrderController.BEER_ORDER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(order(customer.getId()))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @MaxStatementsPerRequest(1)
+    void testGetBeerOrderByIdLoadsInOneStatement() throws Exception {
+        Customer customer = customerRepository.findAll().get(0);
+        List<Beer> beers = List.of(saveBeer(10), saveBeer(10), saveBeer(10));
+        UUID beerOrderId = beerOrderService.placeOrder(order(customer.getId(),
+                line(beers.get(0).getId(), 1), line(beers.get(1).getId(), 2), line(beers.get(2).getId(), 3))).get();
+
+        try {
+            mockMvc.perform(get(BeerOrderController.BEER_ORDER_PATH_ID, beerOrderId)
+                            .with(jwtRequestPostProcessor))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.customer.id").value(customer.getId().toString()))
+                    .andExpect(jsonPath("$.beerOrderLines.length()").value(3))
+                    .andExpect(jsonPath("$.beerOrderLines[0].beer.beerName").value("Order Test Beer"));
+        } finally {
+            deleteOrders(beers);
+        }
+    }
+
+    @Test
+    void testGetBeerOrderByIdNotFound() throws Exception {
+        mockMvc.perform(get(BeerOrderController.BEER_ORDER_PATH_ID, UUID.randomUUID())
+                        .with(jwtRequestPostProcessor))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testListBeerOrdersPageSizeBelowOneUsesDefault() throws Exception {
+        mockMvc.perform(get(BeerOrderController.BEER_ORDER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("pageSize", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(25));
+
+        mockMvc.perform(get(BeerOrderController.BEER_ORDER_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("pageSize", "-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(25));
+    }
+
+    @Test
+    @MaxStatementsPerRequest(3)
+    void testListBeerOrdersLoadsInConstantStatements() throws Exception {
+        Customer customer = customerRepository.findAll().get(0);
+        List<Beer> beers = List.of(saveBeer(50), saveBeer(50), saveBeer(50));
+        for (int i = 0; i < 5; i++) {
+            beerOrderService.placeOrder(order(customer.getId(),
+                    line(beers.get(0).getId(), 1), line(beers.get(1).getId(), 1), line(beers.get(2).getId(), 1)));
+        }
+
+        try {
+            mockMvc.perform(get(BeerOrderController.BEER_ORDER_PATH)
+                            .with(jwtRequestPostProcessor)
+                            .queryParam("customerId", customer.getId().toString())
+                            .queryParam("pageSize", "4"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content.length()").value(4))
+                    .andExpect(jsonPath("$.content[0].beerOrderLines.length()").value(3))
+                    .andExpect(jsonPath("$.content[3].beerOrderLines[0].beer.beerName").exists());
+        } finally {
+            deleteOrders(beers);
+        }
+    }
+
+    void deleteOrders(List<Beer> beers) {
+        for (Beer beer : beers) {
+            jdbcTemplate.update("delete from beer_order_line where beer_id = ?", TimeOrderedUuids.toBytes(beer.getId()));
+        }
+        jdbcTemplate.update("delete from beer_order where customer_ref = ?", CUSTOMER_REF);
+        // By id: allocation bumped the versions the loaded beers still carry
+        beerRepository.deleteAllByIdInBatch(beers.stream().map(Beer::getId).toList());
+    }
+
+    Beer saveBeer(int quantityOnHand) {
+        return beerRepository.saveAndFlush(Beer.builder()
+                .beerName("Order Test Beer")
+                .beerStyle(BeerStyle.LAGER)
+                .upc("424242")
+                .price(new BigDecimal("3.50"))
+                .quantityOnHand(quantityOnHand)
+                .build());
+    }
+
+    static BeerOrderCreateDto order(UUID customerId, BeerOrderLineCreateDto... lines) {
+        return BeerOrderCreateDto.builder()
+                .customerId(customerId)
+                .customerRef(CUSTOMER_REF)
+                .beerOrderLines(List.of(lines))
+                .build();
+    }
+
+    static BeerOrderLineCreateDto line(UUID beerId, int quantity) {
+        return BeerOrderLineCreateDto.builder()
+                .beerId(beerId)
+                .orderQuantity(quantity)
+                .build();
+    }
+}
@@ -1,22 +1,48 @@
 package fi.soininen.tatu.spring6restmvc.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import fi.soininen.tatu.spring6restmvc.entities.Customer;
+import fi.soininen.tatu.spring6restmvc.ids.TimeOrderedUuids;
 import fi.soininen.tatu.spring6restmvc.mappers.CustomerMapper;
+import fi.soininen.tatu.spring6restmvc.model.CursorPage;
 import fi.soininen.tatu.spring6restmvc.model.CustomerDto;
+import fi.soininen.tatu.spring6restmvc.model.CustomerPatchDto;
 import fi.soininen.tatu.spring6restmvc.repositories.CustomerRepository;
+import fi.soininen.tatu.spring6restmvc.statements.MaxStatementsPerRequest;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.Rollback;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
+import static fi.soininen.tatu.spring6restmvc.controller.BeerControllerIntegrationTest.jwtRequestPostProcessor;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 class CustomerControllerIntegrationTest {
@@ -30,6 +56,21 @@ class CustomerControllerIntegrationTest {
     @Autowired
     CustomerMapper customerMapper;
 
+    @Autowired
+    WebApplicationContext wac;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(wac)
+                .apply(springSecurity())
+                .build();
+    }
+
     @Rollback
     @Transactional
     @Test
@@ -102,16 +143,111 @@ class CustomerControllerIntegrationTest {
     @Test
     void testEmptyList() {
         customerRepository.deleteAll();
-        List<CustomerDto> dtos = customerController.getCustomers();
+        Page<CustomerDto> dtos = customerController.getCustomers(null, null, null, null);
 
-        assertThat(dtos).isEmpty();
+        assertThat(dtos.getContent()).isEmpty();
     }
 
     @Test
     void testListAll() {
-        List<CustomerDto> dtos = customerController.getCustomers();
+        Page<CustomerDto> dtos = customerController.getCustomers(null, null, null, null);
+
+        assertThat(dtos.getContent()).hasSize(3);
+        assertThat(dtos.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void testListPaged() {
+        Page<CustomerDto> dtos = customerController.getCustomers(null, null, 2, 2);
+
+        assertThat(dtos.getContent()).hasSize(1);
+        assertThat(dtos.getTotalElements()).isEqualTo(3);
+        assertThat(dtos.getContent().get(0).getName()).isEqualTo("Customer 3");
+    }
+
+    @Rollback
+    @Transactional
+    @Test
+    void testListByNamePrefixAndEmail() {
+        customerRepository.saveAndFlush(Customer.builder()
+                .name("Prefix_Test Customer")
+                .email("prefix.test@example.com")
+                .build());
+
+        Page<CustomerDto> byName = customerController.getCustomers("Prefix_", null, null, null);
+        assertThat(byName.getContent()).extracting(CustomerDto::getEmail)
+                .containsExactly("prefix.test@example.com");
+
+        // The name is a literal prefix, not a substring or a LIKE pattern
+        assertThat(customerController.getCustomers("Prefix%", null, null, null).getContent()).isEmpty();
+        assertThat(customerController.getCustomers("Test Customer", null, null, null).getContent()).isEmpty();
+
+        Page<CustomerDto> byEmail = customerController.getCustomers(null, "prefix.test@example.com", null, null);
+        assertThat(byEmail.getContent()).extracting(CustomerDto::getName)
+                .containsExactly("Prefix_Test Customer");
+    }
+
+    @Test
+    void testListAfterWalksAllCustomers() {
+        List<CustomerDto> seen = new ArrayList<>();
+        String after = "";
+
+        do {
+            CursorPage<CustomerDto> page = customerController.getCustomersAfter(null, null, after, 2);
+            assertThat(page.getSize()).isLessThanOrEqualTo(2);
+            seen.addAll(page.getContent());
+            after = page.getNext();
+        } while (after != null);
+
+        Set<UUID> ids = new HashSet<>();
+        seen.forEach(customer -> ids.add(customer.getId()));
+
+        assertThat(seen).hasSize((int) customerRepository.count());
+        assertThat(ids).hasSize(seen.size());
+    }
+
+    @Test
+    void testListAfterMalformedCursor() {
+        assertThrows(BadRequestException.class, () -> {
+            customerController.getCustomersAfter(null, null, "not a cursor", null);
+        });
+    }
+
+    @Test
+    void testExportCustomersNdjson() throws Exception {
+        MvcResult started = mockMvc.perform(get(CustomerController.CUSTOMER_EXPORT_PATH)
+                        .with(jwtRequestPostProcessor))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize((int) customerRepository.count());
 
-        assertThat(dtos).hasSize(3);
+        CustomerDto first = objectMapper.readValue(lines[0], CustomerDto.class);
+        assertThat(first.getId()).isNotNull();
+    }
+
+    @Test
+    void testExportCustomersCsv() throws Exception {
+        MvcResult started = mockMvc.perform(get(CustomerController.CUSTOMER_EXPORT_PATH)
+                        .with(jwtRequestPostProcessor)
+                        .queryParam("format", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines[0]).startsWith("id,version,name,email");
+        assertThat(lines).hasSize((int) customerRepository.count() + 1);
     }
 
     @Test
@@ -129,4 +265,91 @@ class CustomerControllerIntegrationTest {
 
         assertThat(dto).isNotNull();
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCreateCustomerUnderClientIdIsRetrySafe() throws Exception {
+        UUID customerId = TimeOrderedUuids.next();
+        CustomerDto customer = CustomerDto.builder()
+                .id(customerId)
+                .name("Client Id Customer")
+                .build();
+
+        try {
+            mockMvc.perform(post(CustomerController.CUSTOMER_PATH)
+                            .with(jwtRequestPostProcessor)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(customer)))
+                    .andExpect(status().isCreated())
+                    .andExpect(header().string(HttpHeaders.LOCATION,
+                            CustomerController.CUSTOMER_PATH + "/" + customerId));
+
+            customer.setName("Second attempt");
+            mockMvc.perform(post(CustomerController.CUSTOMER_PATH)
+                            .with(jwtRequestPostProcessor)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(customer)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.LOCATION,
+                            CustomerController.CUSTOMER_PATH + "/" + customerId));
+
+            assertThat(customerRepository.findById(customerId).get().getName()).isEqualTo("Client Id Customer");
+        } finally {
+            customerRepository.deleteById(customerId);
+        }
+    }
+
+    @Rollback
+    @Transactional
+    @Test
+    @MaxStatementsPerRequest(1)
+    void testPatchCustomerIsOneUpdate() throws Exception {
+        Customer customer = customerRepository.findAll().get(0);
+        Integer version = customer.getVersion();
+
+        mockMvc.perform(patch(CustomerController.CUSTOMER_PATH_ID, customer.getId())
+                        .with(jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_MATCH, "W/\"" + version + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\": \"patched@example.com\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"" + (version + 1) + "\""));
+
+        // Read columns directly; the bulk update does not touch entities already in the persistence context
+        CustomerDto patched = customerController.getCustomers(null, "patched@example.com", null, null)
+                .getContent().get(0);
+        assertThat(patched.getId()).isEqualTo(customer.getId());
+        assertThat(patched.getName()).isEqualTo(customer.getName());
+        assertThat(patched.getVersion()).isEqualTo(version + 1);
+    }
+
+    @Rollback
+    @Transactional
+    @Test
+    void testPatchCustomerRejected() throws Exception {
+        Customer customer = customerRepository.findAll().get(0);
+        CustomerPatchDto stale = CustomerPatchDto.builder()
+                .version(customer.getVersion() + 1)
+                .name("Lost update")
+                .build();
+
+        mockMvc.perform(patch(CustomerController.CUSTOMER_PATH_ID, customer.getId())
+                        .with(jwtRequestPostProcessor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(stale)))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(patch(CustomerController.CUSTOMER_PATH_ID, UUID.randomUUID())
+                        .with(jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_MATCH, "W/\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Nobody\"}"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(patch(CustomerController.CUSTOMER_PATH_ID, customer.getId())
+                        .with(jwtRequestPostProcessor)
+                        .header(HttpHeaders.IF_MATCH, "W/\"" + customer.getVersion() + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\": \"not an address\"}"))
+                .andExpect(status().isBadRequest());
+    }
+}
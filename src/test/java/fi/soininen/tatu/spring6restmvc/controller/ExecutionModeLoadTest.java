@@ -0,0 +1,192 @@
+package fi.soininen.tatu.spring6restmvc.controller;
+
+import fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness;
+import fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness.report;
+
+/**
+ * Drives {@value #CLIENTS} concurrent HTTP clients against the beer list, with a pool of five connections,
+ * once on Tomcat's platform-thread pool and once with {@code app.virtual-threads.enabled=true}, and reports
+ * throughput and latency percentiles of successful requests for both. Clients shed with {@code 503} wait out
+ * {@code Retry-After} before their next request.
+ * Run with {@code mvn test '-Dtest=ExecutionModeLoadTest*' -Dbenchmark=true}, the pattern picking up the nested
+ * classes. Virtual threads need Java 21; on an older runtime the second run measures the database permit gate alone.
+ */
+@BenchmarkTest
+@ActiveProfiles("test")
+@DirtiesContext
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.hikari.maximum-pool-size=5")
+@Import(ExecutionModeLoadTest.PermitAllSecurityConfig.class)
+class ExecutionModeLoadTest {
+
+    static final int CLIENTS = 400;
+    static final Duration WARMUP = Duration.ofSeconds(5);
+    static final Duration MEASURE = Duration.ofSeconds(20);
+
+    static final Map<String, String> results = new LinkedHashMap<>();
+
+    @TestConfiguration
+    static class PermitAllSecurityConfig {
+        @Bean
+        SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+            http.authorizeHttpRequests()
+                    .anyRequest()
+                    .permitAll()
+                    .and().csrf().ignoringRequestMatchers("/api/**");
+
+            return http.build();
+        }
+    }
+
+    @AfterAll
+    static void reportResults() {
+        results.forEach((mode, result) -> report("%-16s %s", mode, result));
+    }
+
+    @Nested
+    class PlatformThreads {
+
+        @LocalServerPort
+        int port;
+
+        @Test
+        void load() throws Exception {
+            results.put("platform", run(port));
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = {
+            "app.virtual-threads.enabled=true",
+            "app.virtual-threads.database-permit-timeout=30s"
+    })
+    class VirtualThreads {
+
+        @LocalServerPort
+        int port;
+
+        @Test
+        void load() throws Exception {
+            results.put("virtual", run(port));
+        }
+    }
+
+    static String run(int port) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(8))
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        drive(client, port, WARMUP);
+        Result result = drive(client, port, MEASURE);
+
+        long[] latencies = result.latencies();
+        Arrays.sort(latencies);
+        double seconds = BenchmarkHarness.seconds(MEASURE);
+
+        return String.format(Locale.ROOT,
+                "%,8.0f req/s  p50 %6.1f ms  p99 %7.1f ms  max %7.1f ms  shed %d  errors %d",
+                latencies.length / seconds, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                latencies.length == 0 ? 0.0 : latencies[latencies.length - 1] / 1e6, result.shed(), result.errors());
+    }
+
+    static Result drive(HttpClient client, int port, Duration duration) throws Exception {
+        long end = System.nanoTime() + duration.toNanos();
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                futures.add(clients.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    long errors = 0;
+                    long shed = 0;
+                    while (System.nanoTime() < end) {
+                        int page = ThreadLocalRandom.current().nextInt(1, 90);
+                        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port
+                                        + BeerController.BEER_PATH + "?pageSize=25&pageNumber=" + page))
+                                .GET()
+                                .build();
+
+                        long start = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        long elapsed = System.nanoTime() - start;
+
+                        if (response.statusCode() == 503) {
+                            // Shed by the concurrency limiter; back off the way a well-behaved client would
+                            shed++;
+                            Thread.sleep(1000L * response.headers().firstValueAsLong("Retry-After").orElse(1));
+                            continue;
+                        }
+                        if (response.statusCode() != 200) {
+                            errors++;
+                            continue;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = elapsed;
+                    }
+                    return new Result(Arrays.copyOf(latencies, count), errors, shed);
+                }));
+            }
+
+            long[] all = new long[0];
+            long errors = 0;
+            long shed = 0;
+            for (Future<Result> future : futures) {
+                Result result = future.get();
+                int offset = all.length;
+                all = Arrays.copyOf(all, offset + result.latencies().length);
+                System.arraycopy(result.latencies(), 0, all, offset, result.latencies().length);
+                errors += result.errors();
+                shed += result.shed();
+            }
+            return new Result(all, errors, shed);
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    record Result(long[] latencies, long errors, long shed) {
+    }
+}
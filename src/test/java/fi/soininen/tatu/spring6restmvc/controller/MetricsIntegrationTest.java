@@ -0,0 +1,57 @@
+package fi.soininen.tatu.spring6restmvc.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static fi.soininen.tatu.spring6restmvc.controller.BeerControllerIntegrationTest.jwtRequestPostProcessor;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Tests get a no-op meter registry unless asked for one, which leaves /actuator/prometheus unmapped
+@AutoConfigureObservability
+@SpringBootTest
+class MetricsIntegrationTest {
+
+    @Autowired
+    WebApplicationContext wac;
+
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(wac)
+                .apply(springSecurity())
+                .build();
+    }
+
+    @Test
+    void testPrometheusScrapeCoversControllersServicesPoolAndHibernate() throws Exception {
+        mockMvc.perform(get(BeerController.BEER_PATH).with(jwtRequestPostProcessor))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(CustomerController.CUSTOMER_PATH).with(jwtRequestPostProcessor))
+                .andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus").with(jwtRequestPostProcessor))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(scrape)
+                .contains("app_controller_seconds_count{class=\"" + BeerController.class.getName() + "\"")
+                .contains("app_controller_seconds_count{class=\"" + CustomerController.class.getName() + "\"")
+                .contains("app_service_seconds_count{class=\"fi.soininen.tatu.spring6restmvc.services.BeerServiceJPA\"")
+                .contains("hikaricp_connections_active")
+                .contains("hikaricp_connections_pending")
+                .contains("hikaricp_connections_acquire_seconds")
+                .contains("hibernate_statements_total")
+                .contains("hibernate_entities_loads_total")
+                .contains("hibernate_second_level_cache_requests_total");
+    }
+}
@@ -0,0 +1,293 @@
+package fi.soininen.tatu.spring6restmvc.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness;
+import fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkTest;
+import fi.soininen.tatu.spring6restmvc.entities.Beer;
+import fi.soininen.tatu.spring6restmvc.model.BeerDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import fi.soininen.tatu.spring6restmvc.repositories.BeerRepository;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Seeds H2 with a synthetic catalog and drives {@value #DEFAULT_CLIENTS} closed-loop HTTP clients through a fixed
+ * mix of list by name, list by style, get by id, put and post. Latency of every successful request goes into an
+ * HdrHistogram per endpoint; the report with throughput and p50/p99/p99.9 per endpoint is written to
+ * {@code target/load-test/report.json}, next to one {@code .hgrm} percentile distribution per endpoint.
+ * Run with {@code mvn test -Dtest=MixedTrafficLoadTest -Dbenchmark=true}; {@code -Dload.clients},
+ * {@code -Dload.seconds} and {@code -Dload.catalog} change the profile, which is recorded in the report so runs
+ * are only compared like for like.
+ */
+@BenchmarkTest
+@ActiveProfiles("test")
+@DirtiesContext
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import(ExecutionModeLoadTest.PermitAllSecurityConfig.class)
+class MixedTrafficLoadTest {
+
+    static final int DEFAULT_CLIENTS = 64;
+    static final int DEFAULT_SECONDS = 30;
+    static final int DEFAULT_CATALOG = 20_000;
+    static final Duration WARMUP = Duration.ofSeconds(10);
+    static final Path REPORT_DIR = Path.of("target", "load-test");
+
+    static final String[] WORDS = {"Hop", "Dark", "Golden", "Hazy", "Smoked", "Citrus", "Amber", "Session",
+            "Double", "Wild", "Barrel", "Winter"};
+
+    // Highest latency the histograms track, with three significant digits
+    static final long MAX_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    /**
+     * Share of the traffic each endpoint gets, in percent.
+     */
+    enum Endpoint {
+        LIST_BY_NAME(35), LIST_BY_STYLE(25), GET_BY_ID(25), PUT(10), POST(5);
+
+        final int weight;
+
+        Endpoint(int weight) {
+            this.weight = weight;
+        }
+
+        static Endpoint pick(int percent) {
+            for (Endpoint endpoint : values()) {
+                percent -= endpoint.weight;
+                if (percent < 0) {
+                    return endpoint;
+                }
+            }
+            return POST;
+        }
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Test
+    void mixedTraffic() throws Exception {
+        int clients = Integer.getInteger("load.clients", DEFAULT_CLIENTS);
+        Duration measure = Duration.ofSeconds(Integer.getInteger("load.seconds", DEFAULT_SECONDS));
+        int catalog = Integer.getInteger("load.catalog", DEFAULT_CATALOG);
+
+        List<UUID> ids = seed(catalog);
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(8))
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        drive(client, ids, clients, WARMUP);
+        Map<Endpoint, Stats> stats = drive(client, ids, clients, measure);
+
+        Map<String, Object> report = report(stats, clients, measure, catalog);
+        Files.createDirectories(REPORT_DIR);
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(REPORT_DIR.resolve("report.json").toFile(), report);
+        for (Map.Entry<Endpoint, Stats> entry : stats.entrySet()) {
+            writeDistribution(entry.getKey(), entry.getValue().histogram());
+        }
+
+        stats.forEach((endpoint, s) -> BenchmarkHarness.report(
+                "%-14s %,8.0f req/s  p50 %6.1f ms  p99 %7.1f ms  p99.9 %7.1f ms  errors %d",
+                endpoint, s.histogram().getTotalCount() / BenchmarkHarness.seconds(measure),
+                millis(s.histogram(), 50.0), millis(s.histogram(), 99.0), millis(s.histogram(), 99.9), s.errors().get()));
+
+        assertThat(stats.values()).allSatisfy(s -> assertThat(s.histogram().getTotalCount()).isPositive());
+    }
+
+    /**
+     * Adds {@code catalog} beers named from {@link #WORDS} on top of the bootstrap data, so every name search
+     * term matches a predictable share of the catalog. Returns the ids that get and put requests pick from.
+     */
+    List<UUID> seed(int catalog) {
+        BeerStyle[] styles = BeerStyle.values();
+        List<UUID> ids = new ArrayList<>(catalog);
+        List<Beer> batch = new ArrayList<>(1000);
+
+        for (int i = 0; i < catalog; i++) {
+            batch.add(Beer.builder()
+                    .beerName(WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i)
+                    .beerStyle(styles[i % styles.length])
+                    .upc(String.valueOf(1_000_000 + i))
+                    .quantityOnHand(i % 500)
+                    .price(new BigDecimal("4.99").add(BigDecimal.valueOf(i % 100, 2)))
+                    .build());
+
+            if (batch.size() == 1000 || i == catalog - 1) {
+                beerRepository.saveAll(batch).forEach(beer -> ids.add(beer.getId()));
+                batch.clear();
+            }
+        }
+        return ids;
+    }
+
+    Map<Endpoint, Stats> drive(HttpClient client, List<UUID> ids, int clients, Duration duration) throws Exception {
+        Map<Endpoint, Stats> stats = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new Stats(new ConcurrentHistogram(MAX_LATENCY_NANOS, 3), new AtomicLong()));
+        }
+
+        long end = System.nanoTime() + duration.toNanos();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                futures.add(pool.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        Endpoint endpoint = Endpoint.pick(random.nextInt(100));
+                        HttpRequest request = request(endpoint, ids.get(random.nextInt(ids.size())), random);
+
+                        long start = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        long elapsed = System.nanoTime() - start;
+
+                        Stats endpointStats = stats.get(endpoint);
+                        if (response.statusCode() >= 400) {
+                            endpointStats.errors().incrementAndGet();
+                            continue;
+                        }
+                        endpointStats.histogram().recordValue(Math.min(elapsed, MAX_LATENCY_NANOS));
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return stats;
+    }
+
+    HttpRequest request(Endpoint endpoint, UUID id, ThreadLocalRandom random) throws IOException {
+        String base = "http://localhost:" + port + BeerController.BEER_PATH;
+
+        return switch (endpoint) {
+            case LIST_BY_NAME -> HttpRequest.newBuilder(URI.create(base + "?pageSize=25&beerName="
+                            + URLEncoder.encode(WORDS[random.nextInt(WORDS.length)], StandardCharsets.UTF_8)))
+                    .GET()
+                    .build();
+            case LIST_BY_STYLE -> HttpRequest.newBuilder(URI.create(base + "?pageSize=25&pageNumber="
+                            + random.nextInt(1, 20) + "&beerStyle="
+                            + BeerStyle.values()[random.nextInt(BeerStyle.values().length)]))
+                    .GET()
+                    .build();
+            case GET_BY_ID -> HttpRequest.newBuilder(URI.create(base + "/" + id))
+                    .GET()
+                    .build();
+            case PUT -> HttpRequest.newBuilder(URI.create(base + "/" + id))
+                    .header("Content-Type", "application/json")
+                    .PUT(body("Updated " + random.nextInt(1_000_000)))
+                    .build();
+            case POST -> HttpRequest.newBuilder(URI.create(base))
+                    .header("Content-Type", "application/json")
+                    .POST(body("Posted " + random.nextInt(1_000_000)))
+                    .build();
+        };
+    }
+
+    HttpRequest.BodyPublisher body(String beerName) throws IOException {
+        BeerDto beer = BeerDto.builder()
+                .beerName(beerName)
+                .beerStyle(BeerStyle.IPA)
+                .upc("123123")
+                .quantityOnHand(10)
+                .price(new BigDecimal("7.50"))
+                .build();
+        return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(beer));
+    }
+
+    static Map<String, Object> report(Map<Endpoint, Stats> stats, int clients, Duration measure, int catalog) {
+        double seconds = measure.toNanos() / 1e9;
+
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("clients", clients);
+        profile.put("measureSeconds", measure.toSeconds());
+        profile.put("warmupSeconds", WARMUP.toSeconds());
+        profile.put("syntheticCatalog", catalog);
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (Endpoint endpoint : Endpoint.values()) {
+            mix.put(endpoint.name(), endpoint.weight);
+        }
+        profile.put("mix", mix);
+
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        stats.forEach((endpoint, s) -> {
+            Histogram histogram = s.histogram();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("requests", histogram.getTotalCount());
+            result.put("errors", s.errors().get());
+            result.put("throughputPerSecond", histogram.getTotalCount() / seconds);
+            result.put("p50Millis", millis(histogram, 50.0));
+            result.put("p99Millis", millis(histogram, 99.0));
+            result.put("p999Millis", millis(histogram, 99.9));
+            result.put("maxMillis", histogram.getMaxValue() / 1e6);
+            endpoints.put(endpoint.name(), result);
+        });
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("profile", profile);
+        report.put("endpoints", endpoints);
+        return report;
+    }
+
+    static void writeDistribution(Endpoint endpoint, Histogram histogram) throws IOException {
+        Path file = REPORT_DIR.resolve(endpoint.name().toLowerCase() + ".hgrm");
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, 1e6);
+        }
+    }
+
+    static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    record Stats(Histogram histogram, AtomicLong errors) {
+    }
+}
@@ -0,0 +1,109 @@
+package fi.soininen.tatu.spring6restmvc.ids;
+
+import fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness;
+import fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkTest;
+import fi.soininen.tatu.spring6restmvc.entities.Beer;
+import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import fi.soininen.tatu.spring6restmvc.repositories.BeerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness.report;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Insert throughput into a {@code binary(16)} clustered key, random ids against time-ordered ones, and the
+ * time-ordered entity path through Hibernate. On H2 the gap is small; point it at MySQL to see the page splits:
+ * {@code mvn test -Dtest=IdInsertBenchmarkTest -Dbenchmark=true -Dspring.profiles.active=localmysql}.
+ */
+@BenchmarkTest
+@DirtiesContext
+@SpringBootTest
+class IdInsertBenchmarkTest {
+
+    static final int ROWS = 500_000;
+    static final int BATCH = 1000;
+    static final int ENTITIES = 50_000;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("drop table if exists id_insert_benchmark");
+        jdbcTemplate.update("delete from beer where beer_name like 'Id Benchmark %'");
+    }
+
+    @Test
+    void compareRandomAndTimeOrderedInserts() throws Exception {
+        double random = insertRows("random", UUID::randomUUID);
+        double ordered = insertRows("time-ordered", TimeOrderedUuids::next);
+
+        report("time-ordered / random throughput: %.2fx", ordered / random);
+
+        double seconds = BenchmarkHarness.seconds(BenchmarkHarness.time(() -> {
+            List<Beer> batch = new ArrayList<>(BATCH);
+            for (int i = 0; i < ENTITIES; i++) {
+                batch.add(Beer.builder()
+                        .beerName("Id Benchmark " + i)
+                        .beerStyle(BeerStyle.values()[i % BeerStyle.values().length])
+                        .upc(String.valueOf(i))
+                        .quantityOnHand(i % 500)
+                        .price(BigDecimal.TEN)
+                        .build());
+
+                if (batch.size() == BATCH) {
+                    beerRepository.saveAll(batch);
+                    batch.clear();
+                }
+            }
+        }));
+
+        report("ids=%-12s rows=%8d  %8.2f s  %10.0f rows/s (Beer entities)",
+                "time-ordered", ENTITIES, seconds, ENTITIES / seconds);
+    }
+
+    /**
+     * Inserts into a fresh table shaped like the entity tables: the id as clustered key plus one secondary index.
+     * Returns rows per second.
+     */
+    private double insertRows(String label, Supplier<UUID> ids) throws Exception {
+        jdbcTemplate.execute("drop table if exists id_insert_benchmark");
+        jdbcTemplate.execute("create table id_insert_benchmark (id binary(16) not null primary key, " +
+                "name varchar(50) not null, created_date timestamp)");
+        jdbcTemplate.execute("create index ix_id_insert_benchmark_name on id_insert_benchmark (name)");
+
+        double seconds = BenchmarkHarness.seconds(BenchmarkHarness.time(() -> {
+            List<Object[]> batch = new ArrayList<>(BATCH);
+            for (int i = 0; i < ROWS; i++) {
+                batch.add(new Object[]{TimeOrderedUuids.toBytes(ids.get()), "Row " + i});
+
+                if (batch.size() == BATCH) {
+                    jdbcTemplate.batchUpdate("insert into id_insert_benchmark (id, name, created_date) " +
+                            "values (?, ?, current_timestamp)", batch);
+                    batch.clear();
+                }
+            }
+        }));
+
+        Integer count = jdbcTemplate.queryForObject("select count(*) from id_insert_benchmark", Integer.class);
+        assertThat(count).isEqualTo(ROWS);
+
+        report("ids=%-12s rows=%8d  %8.2f s  %10.0f rows/s", label, ROWS, seconds, ROWS / seconds);
+
+        return ROWS / seconds;
+    }
+}
@@ -0,0 +1,47 @@
+package fi.soininen.tatu.spring6restmvc.ids;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeOrderedUuidsTest {
+
+    @Test
+    void testVersionVariantAndTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID id = TimeOrderedUuids.next();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(id.getMostSignificantBits() >>> 16).isGreaterThanOrEqualTo(before);
+    }
+
+    @Test
+    void testStoredBytesSortInGenerationOrder() {
+        Set<UUID> seen = new HashSet<>();
+        byte[] previous = TimeOrderedUuids.toBytes(TimeOrderedUuids.next());
+
+        // More ids than the sequence holds in one millisecond, so the carry into the timestamp is exercised
+        for (int i = 0; i < 20_000; i++) {
+            UUID id = TimeOrderedUuids.next();
+            byte[] current = TimeOrderedUuids.toBytes(id);
+
+            assertThat(Arrays.compareUnsigned(previous, current)).isNegative();
+            assertThat(seen.add(id)).isTrue();
+            previous = current;
+        }
+    }
+
+    @Test
+    void testBytesAreBigEndian() {
+        UUID id = UUID.fromString("01890a5d-ac96-774b-bcce-b302099a8057");
+
+        assertThat(TimeOrderedUuids.toBytes(id)).containsExactly(
+                0x01, 0x89, 0x0a, 0x5d, 0xac, 0x96, 0x77, 0x4b, 0xbc, 0xce, 0xb3, 0x02, 0x09, 0x9a, 0x80, 0x57);
+    }
+}
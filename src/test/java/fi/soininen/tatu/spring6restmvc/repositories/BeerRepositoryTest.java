@@ -1,28 +1,39 @@
 package fi.soininen.tatu.spring6restmvc.repositories;
 
+import fi.soininen.tatu.spring6restmvc.bootstrap.BeerCsvImporter;
 import fi.soininen.tatu.spring6restmvc.bootstrap.BootstrapData;
 import fi.soininen.tatu.spring6restmvc.entities.Beer;
+import fi.soininen.tatu.spring6restmvc.model.BeerDto;
 import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import fi.soininen.tatu.spring6restmvc.model.PageCursor;
 import fi.soininen.tatu.spring6restmvc.services.BeerCsvServiceImpl;
+import jakarta.persistence.EntityManager;
 import jakarta.validation.ConstraintViolationException;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @DataJpaTest
-@Import({BootstrapData.class, BeerCsvServiceImpl.class})
+@Import({BootstrapData.class, BeerCsvImporter.class, BeerCsvServiceImpl.class})
 class BeerRepositoryTest {
 
     @Autowired
     BeerRepository beerRepository;
 
+    @Autowired
+    EntityManager entityManager;
+
     @Test
     void testGetBeerListByName() {
         Page<Beer> list = beerRepository.findAllByBeerNameIsLikeIgnoreCase("%IPA%", null);
@@ -44,6 +55,43 @@ class BeerRepositoryTest {
         assertThat(list).hasSize(1);
     }
 
+    @Test
+    void testGetBeerListByNameAfter() {
+        List<Beer> first = beerRepository.findAllByBeerNameAfter("%IPA%",
+                PageCursor.FIRST.getSortKey(), PageCursor.FIRST.getId(), PageRequest.of(0, 300));
+        Beer last = first.get(first.size() - 1);
+
+        List<Beer> rest = beerRepository.findAllByBeerNameAfter("%IPA%",
+                last.getBeerName(), last.getId(), PageRequest.of(0, 300));
+
+        assertThat(first).hasSize(300);
+        assertThat(rest).hasSize(36);
+        assertThat(rest).doesNotContainAnyElementsOf(first);
+    }
+
+    @Test
+    void testGetBeerDtosByNameAndStyleWithoutEntities() {
+        Page<BeerDto> page = beerRepository.findBeerDtos("IPA", BeerStyle.IPA, false,
+                PageRequest.of(0, 25, Sort.by(Sort.Order.asc("beerName"))));
+
+        assertThat(page.getContent()).hasSize(25);
+        assertThat(page.getTotalElements()).isEqualTo(
+                beerRepository.countByBeerNameIsLikeIgnoreCaseAndBeerStyle("%IPA%", BeerStyle.IPA));
+        assertThat(page.getContent()).allSatisfy(beer -> {
+            assertThat(beer.getQuantityOnHand()).isNull();
+            assertThat(beer.getBeerName()).isNotNull();
+        });
+        assertThat(entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    void testGetBeerDtosWithInventory() {
+        Page<BeerDto> page = beerRepository.findBeerDtos(null, null, true, PageRequest.of(2, 50));
+
+        assertThat(page.getContent()).hasSize(50);
+        assertThat(page.getTotalElements()).isEqualTo(beerRepository.count());
+        assertThat(page.getContent().get(0).getQuantityOnHand()).isNotNull();
+    }
 
     @Test
     void testSaveBeer() {
@@ -0,0 +1,231 @@
+package fi.soininen.tatu.spring6restmvc.repositories;
+
+import fi.soininen.tatu.spring6restmvc.model.BeerPatchDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import fi.soininen.tatu.spring6restmvc.model.CustomerPatchDto;
+import fi.soininen.tatu.spring6restmvc.statements.StatementCounter;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs every repository query, EXPLAINs the SQL Hibernate generated for it and checks the plan reads the index the
+ * query was written for. A renamed column, a changed sort or a dropped index shows up here as a table scan.
+ * <p>
+ * Infix {@code LIKE} filters cannot use a B-tree index; their pages are only required to read rows in index order,
+ * and their counts may scan. The service answers those searches from the trigram index instead.
+ * <p>
+ * The plans are taken against the migrated schema, not the one Hibernate would generate: Flyway starts from an H2
+ * copy of what V1 to V9 leave behind ({@code db/h2/schema-v9.sql}, V9 itself only runs on MySQL) and applies the
+ * later migrations, and Hibernate validates the entities against the result.
+ */
+@Transactional
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:queryplan;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.flyway.enabled=true",
+        "spring.flyway.init-sqls=RUNSCRIPT FROM 'classpath:db/h2/schema-v9.sql'",
+        "spring.flyway.baseline-on-migrate=true",
+        "spring.flyway.baseline-version=9",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+class QueryPlanTest {
+
+    static final String TABLE_SCAN = "tableScan";
+    static final String INDEX_SORTED = "index sorted";
+    static final String PRIMARY_KEY = "PRIMARY_KEY";
+
+    static final Pageable BY_NAME = PageRequest.of(0, 25,
+            Sort.by(Sort.Order.asc("beerName"), Sort.Order.asc("id")));
+    static final Pageable CUSTOMERS_BY_NAME = PageRequest.of(0, 25,
+            Sort.by(Sort.Order.asc("name"), Sort.Order.asc("id")));
+    static final Pageable ORDERS_NEWEST_FIRST = PageRequest.of(0, 25,
+            Sort.by(Sort.Order.desc("createdDate"), Sort.Order.asc("id")));
+    static final Pageable LIMIT = PageRequest.of(0, 25);
+
+    static final UUID ID = UUID.randomUUID();
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    @Autowired
+    BeerOrderRepository beerOrderRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // Cached entities and query results would answer without any SQL to explain
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    void testBeerListingsReadNameIndexes() {
+        assertPlans(explain(() -> beerRepository.findAll(BY_NAME)).subList(0, 1), "IX_BEER_NAME_ID", INDEX_SORTED);
+
+        assertPlans(explain(() -> beerRepository.findAllByBeerStyle(BeerStyle.IPA, BY_NAME)),
+                "IX_BEER_STYLE_NAME_ID");
+        assertPlans(explain(() -> beerRepository.findSliceByBeerStyle(BeerStyle.IPA, BY_NAME)),
+                "IX_BEER_STYLE_NAME_ID");
+        assertPlans(explain(() -> beerRepository.countByBeerStyle(BeerStyle.IPA)), "IX_BEER_STYLE_NAME_ID");
+
+        assertPlans(explain(() -> beerRepository.findAllByBeerNameIsLikeIgnoreCaseAndBeerStyle("%IPA%",
+                BeerStyle.IPA, BY_NAME)), "IX_BEER_STYLE_NAME_ID");
+        assertPlans(explain(() -> beerRepository.findSliceByBeerNameIsLikeIgnoreCaseAndBeerStyle("%IPA%",
+                BeerStyle.IPA, BY_NAME)), "IX_BEER_STYLE_NAME_ID");
+        assertPlans(explain(() -> beerRepository.countByBeerNameIsLikeIgnoreCaseAndBeerStyle("%IPA%",
+                BeerStyle.IPA)), "IX_BEER_STYLE_NAME_ID");
+
+        assertPlans(explain(() -> beerRepository.findSliceBy(BY_NAME)), "IX_BEER_NAME_ID", INDEX_SORTED);
+    }
+
+    @Test
+    void testBeerInfixSearchesReadInNameOrder() {
+        assertPlans(explain(() -> beerRepository.findAllByBeerNameIsLikeIgnoreCase("%IPA%", BY_NAME)).subList(0, 1),
+                "IX_BEER_NAME_ID", INDEX_SORTED);
+
+        assertPlans(explain(() -> beerRepository.findSliceByBeerNameIsLikeIgnoreCase("%IPA%", BY_NAME)),
+                "IX_BEER_NAME_ID", INDEX_SORTED);
+
+        // Counting infix matches has to look at every name
+        assertThat(explain(() -> beerRepository.countByBeerNameIsLikeIgnoreCase("%IPA%"))).hasSize(1);
+    }
+
+    @Test
+    void testBeerKeysetQueriesSeekIndexes() {
+        assertPlans(explain(() -> beerRepository.findAllAfter("", ID, LIMIT)), "IX_BEER_NAME_ID");
+        assertPlans(explain(() -> beerRepository.findAllByBeerNameAfter("%IPA%", "", ID, LIMIT)),
+                "IX_BEER_NAME_ID");
+        assertPlans(explain(() -> beerRepository.findAllByBeerStyleAfter(BeerStyle.IPA, "", ID, LIMIT)),
+                "IX_BEER_STYLE_NAME_ID");
+        assertPlans(explain(() -> beerRepository.findAllByBeerNameAndBeerStyleAfter("%IPA%", BeerStyle.IPA, "",
+                ID, LIMIT)), "IX_BEER_STYLE_NAME_ID");
+        assertPlans(explain(() -> beerRepository.findBeerNamesAfter(ID, LIMIT)), PRIMARY_KEY);
+    }
+
+    @Test
+    void testBeerLookupsAndAllocationUsePrimaryKey() {
+        assertPlans(explain(() -> beerRepository.findById(ID)), PRIMARY_KEY);
+        assertPlans(explain(() -> beerRepository.allocateInventory(ID, 1)), PRIMARY_KEY);
+        assertPlans(explain(() -> beerRepository.findBeerDtosByIdIn(Set.of(ID), true)), PRIMARY_KEY);
+        assertPlans(explain(() -> beerRepository.patchBeer(ID, 0,
+                BeerPatchDto.builder().beerName("Patched").build())), PRIMARY_KEY);
+    }
+
+    @Test
+    void testBeerDeletesUseKeys() {
+        // Covers the beer_category cleanup that runs ahead of the delete as well
+        assertPlans(explain(() -> beerRepository.deleteBeers(List.of(ID))));
+        assertPlans(explain(() -> beerRepository.findOrderedBeerIds(List.of(ID))));
+    }
+
+    @Test
+    void testCustomerQueriesReadIndexes() {
+        // A function around name would still read ix_customer_name_id in order, but from end to end: only a bare
+        // prefix LIKE turns into a bounded range on the index
+        assertPlans(explain(() -> customerRepository.findCustomerDtos("Cust", null, CUSTOMERS_BY_NAME), "Cust%"),
+                "IX_CUSTOMER_NAME_ID", "name >= 'Cust'", "name < 'Cusu'");
+        assertPlans(explain(() -> customerRepository.findCustomerDtos(null, "customer@example.com",
+                CUSTOMERS_BY_NAME)), "IX_CUSTOMER_EMAIL");
+        assertPlans(explain(() -> customerRepository.findCustomerDtosAfter(null, null, ID, 25)), PRIMARY_KEY);
+        assertPlans(explain(() -> customerRepository.findById(ID)), PRIMARY_KEY);
+        assertPlans(explain(() -> customerRepository.patchCustomer(ID, 0,
+                CustomerPatchDto.builder().name("Patched").build())), PRIMARY_KEY);
+        assertPlans(explain(() -> customerRepository.deleteCustomer(ID)), PRIMARY_KEY);
+    }
+
+    @Test
+    void testCategoryLookupUsesPrimaryKey() {
+        assertPlans(explain(() -> categoryRepository.findById(ID)), PRIMARY_KEY);
+    }
+
+    @Test
+    void testBeerOrderQueriesReadIndexes() {
+        assertPlans(explain(() -> beerOrderRepository.findWithLinesById(ID)), PRIMARY_KEY);
+        // H2 seeks a customer's orders through the index behind bo_customer_fk and sorts them, it does not weigh
+        // ix_beer_order_customer_created against it. On MySQL the composite index also serves the newest-first order.
+        assertPlans(explain(() -> beerOrderRepository.findAllByCustomerId(ID, ORDERS_NEWEST_FIRST)),
+                "BO_CUSTOMER_FK", "customer_id = ?");
+        assertPlans(explain(() -> beerOrderRepository.findAllBy(ORDERS_NEWEST_FIRST)).subList(0, 1),
+                "IX_BEER_ORDER_CREATED_DATE_ID", INDEX_SORTED);
+        assertPlans(explain(() -> beerOrderRepository.fetchLines(List.of(ID))), PRIMARY_KEY);
+    }
+
+    /**
+     * Each plan has to mention every expected fragment and must not scan any table.
+     */
+    private static void assertPlans(List<String> plans, String... expected) {
+        assertThat(plans).isNotEmpty();
+
+        for (String plan : plans) {
+            assertThat(plan).doesNotContain(TABLE_SCAN);
+            for (String fragment : expected) {
+                assertThat(plan).containsIgnoringCase(fragment);
+            }
+        }
+    }
+
+    /**
+     * Runs the query and returns the plan of every statement it issued. Parameters are bound as nulls: the plan is
+     * chosen when the statement is prepared, before any value is known.
+     */
+    private List<String> explain(Runnable query) {
+        return explain(query, new Object[0]);
+    }
+
+    /**
+     * Like {@link #explain(Runnable)}, but binds {@code values} to the leading parameters of every statement. H2
+     * folds a {@code LIKE} against a null to {@code FALSE}, so a prefix filter only shows its index range when the
+     * pattern is bound.
+     */
+    private List<String> explain(Runnable query, Object... values) {
+        List<String> statements;
+        try (StatementCounter.Scope scope = StatementCounter.record("query plan")) {
+            query.run();
+            statements = scope.getStatements();
+        }
+
+        return statements.stream()
+                .map(sql -> jdbcTemplate.execute("explain " + sql, (PreparedStatementCallback<String>) ps -> {
+                    int parameters = ps.getParameterMetaData().getParameterCount();
+                    for (int i = 1; i <= parameters; i++) {
+                        if (i <= values.length) {
+                            ps.setObject(i, values[i - 1]);
+                        } else {
+                            ps.setNull(i, Types.NULL);
+                        }
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        return rs.getString(1);
+                    }
+                }))
+                .toList();
+    }
+}
@@ -0,0 +1,151 @@
+package fi.soininen.tatu.spring6restmvc.routing;
+
+import fi.soininen.tatu.spring6restmvc.config.CacheConfig;
+import fi.soininen.tatu.spring6restmvc.model.BeerDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import fi.soininen.tatu.spring6restmvc.services.BeerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and a replica; "replication" copies the primary over
+ * with SCRIPT and RUNSCRIPT. Reads by id are answered from the second-level cache, which primary writes keep
+ * current, so routing is observed through the uncached row count.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.urls=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.max-lag=10m",
+        "app.datasource.replica.heartbeat-interval=PT1H"
+})
+class ReadWriteRoutingTest {
+
+    @Autowired
+    BeerService beerService;
+
+    @Autowired
+    ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    ReadWriteRoutingDataSource readWriteRoutingDataSource;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        // The test framework binds one mock request to the whole test method; start outside any request
+        RequestContextHolder.resetRequestAttributes();
+
+        replicaLagMonitor.writeHeartbeat();
+        replicate();
+        replicaLagMonitor.checkReplicas();
+
+        // Replication here happens behind the application's back, so counts cached from the replica are stale
+        cacheManager.getCache(CacheConfig.BEER_COUNT_CACHE).clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void testReadOnlyTransactionsReadTheReplica() throws SQLException {
+        assertThat(readWriteRoutingDataSource.getReplicas().get(0).isAvailable()).isTrue();
+
+        long before = beerService.countBeers(null, null);
+
+        beerService.saveNewBeer(newBeer("Primary Only"));
+
+        assertThat(beerService.countBeers(null, null)).isEqualTo(before);
+
+        replicate();
+        beerService.saveNewBeer(newBeer("Evicts The Count"));
+
+        assertThat(beerService.countBeers(null, null)).isEqualTo(before + 1);
+    }
+
+    @Test
+    void testReadYourWritesWithinRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        long before = beerService.countBeers(null, null);
+        assertThat(ReadYourWrites.wroteInThisRequest()).isFalse();
+
+        beerService.saveNewBeer(newBeer("Read Your Writes"));
+
+        assertThat(ReadYourWrites.wroteInThisRequest()).isTrue();
+        assertThat(beerService.countBeers(null, null)).isEqualTo(before + 1);
+
+        // A new request starts unpinned
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertThat(ReadYourWrites.wroteInThisRequest()).isFalse();
+    }
+
+    @Test
+    void testLaggingReplicaIsSkipped() throws SQLException {
+        try (Connection replica = replicaConnection(); Statement statement = replica.createStatement()) {
+            statement.executeUpdate("update replica_heartbeat set beat = '"
+                    + Timestamp.from(Instant.now().minus(1, ChronoUnit.HOURS)) + "'");
+        }
+        replicaLagMonitor.checkReplicas();
+
+        ReadWriteRoutingDataSource.Replica replica = readWriteRoutingDataSource.getReplicas().get(0);
+        assertThat(replica.isAvailable()).isFalse();
+        assertThat(replica.getLag()).isGreaterThan(Duration.ofMinutes(59));
+
+        long before = beerService.countBeers(null, null);
+        beerService.saveNewBeer(newBeer("Replica Behind"));
+        assertThat(beerService.countBeers(null, null)).isEqualTo(before + 1);
+    }
+
+    private void replicate() throws SQLException {
+        String script = dir.resolve("primary.sql").toString().replace('\\', '/');
+        try (Connection primary = DriverManager.getConnection("jdbc:h2:mem:routing-primary", "sa", "");
+             Statement statement = primary.createStatement()) {
+            statement.execute("SCRIPT DROP TO '" + script + "'");
+        }
+        try (Connection replica = replicaConnection(); Statement statement = replica.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            statement.execute("RUNSCRIPT FROM '" + script + "'");
+        }
+    }
+
+    private static Connection replicaConnection() throws SQLException {
+        return DriverManager.getConnection("jdbc:h2:mem:routing-replica", "sa", "");
+    }
+
+    private static BeerDto newBeer(String name) {
+        return BeerDto.builder()
+                .beerName(name)
+                .beerStyle(BeerStyle.PALE_ALE)
+                .upc("123456")
+                .price(new BigDecimal("9.99"))
+                .quantityOnHand(10)
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+package fi.soininen.tatu.spring6restmvc.search;
+
+import fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkTest;
+import fi.soininen.tatu.spring6restmvc.ids.TimeOrderedUuids;
+import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import fi.soininen.tatu.spring6restmvc.repositories.BeerRepository;
+import fi.soininen.tatu.spring6restmvc.services.BeerServiceJPA;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness.average;
+import static fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness.millis;
+import static fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness.report;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the trigram index with the LIKE scan on a synthetic 1M row catalog.
+ * Run with {@code mvn test -Dtest=BeerNameSearchBenchmarkTest -Dbenchmark=true -DargLine=-Xmx3g}.
+ */
+@BenchmarkTest
+@DirtiesContext
+@SpringBootTest
+class BeerNameSearchBenchmarkTest {
+
+    static final int BEERS = 1_000_000;
+    static final int ROUNDS = 20;
+
+    static final String[] WORDS = {"Galaxy", "Cat", "Hazy", "Moon", "Crank", "Sunshine", "City", "Imperial",
+            "Stout", "River", "Mosaic", "Citra", "Black", "Harbor", "Pine", "Wolf", "Golden", "Smoke", "Cherry",
+            "Amber", "Summit", "Lager", "Porter", "Storm", "Velvet", "Copper", "Maple", "Frost", "Orchard", "Dark"};
+
+    static final String[] QUERIES = {"ipa", "galaxy cat", "velvet", "son", "orchard frost"};
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    BeerServiceJPA beerService;
+
+    @Autowired
+    BeerNameTrigramIndex beerNameIndex;
+
+    @Test
+    void compareLikeAndTrigramSearch() throws Exception {
+        insertBeers();
+        beerNameIndex.load();
+
+        PageRequest pageRequest = PageRequest.of(0, 25, Sort.by(Sort.Order.asc("beerName")));
+
+        for (String query : QUERIES) {
+            long likeTotal = beerRepository.findAllByBeerNameIsLikeIgnoreCase("%" + query + "%", pageRequest)
+                    .getTotalElements();
+            long indexTotal = beerService.listBeersByName(query, pageRequest).getTotalElements();
+
+            assertThat(indexTotal).isEqualTo(likeTotal);
+
+            double likeMs = millis(average(ROUNDS,
+                    () -> beerRepository.findAllByBeerNameIsLikeIgnoreCase("%" + query + "%", pageRequest)));
+            double indexMs = millis(average(ROUNDS, () -> beerService.listBeersByName(query, pageRequest)));
+
+            report("query=%-14s matches=%7d  LIKE %8.2f ms  trigram %8.2f ms", query, likeTotal, likeMs, indexMs);
+        }
+    }
+
+    private void insertBeers() {
+        Random random = new Random(42);
+        BeerStyle[] styles = BeerStyle.values();
+        List<Object[]> batch = new ArrayList<>();
+
+        for (int i = 0; i < BEERS; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + (random.nextInt(10) == 0 ? " IPA" : "") + " " + i;
+            byte[] id = TimeOrderedUuids.toBytes(TimeOrderedUuids.next());
+            batch.add(new Object[]{id, name, styles[random.nextInt(styles.length)].ordinal(),
+                    BigDecimal.TEN, String.valueOf(i), random.nextInt(500)});
+
+            if (batch.size() == 10_000) {
+                flush(batch);
+            }
+        }
+        flush(batch);
+    }
+
+    private void flush(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("insert into beer (id, beer_name, beer_style, price, upc, quantity_on_hand, version) " +
+                "values (?, ?, ?, ?, ?, ?, 0)", batch);
+        batch.clear();
+    }
+}
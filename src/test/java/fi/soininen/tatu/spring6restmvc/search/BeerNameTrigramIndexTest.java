@@ -0,0 +1,116 @@
+package fi.soininen.tatu.spring6restmvc.search;
+
+import fi.soininen.tatu.spring6restmvc.repositories.BeerNameView;
+import fi.soininen.tatu.spring6restmvc.repositories.BeerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class BeerNameTrigramIndexTest {
+
+    BeerNameTrigramIndex index;
+
+    UUID galaxyCat = UUID.randomUUID();
+    UUID crank = UUID.randomUUID();
+    UUID catIpa = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        index = new BeerNameTrigramIndex(null, NameCollation.BINARY);
+        index.put(galaxyCat, "Galaxy Cat");
+        index.put(crank, "Crank");
+        index.put(catIpa, "Alley Cat IPA");
+    }
+
+    @Test
+    void testSearchIgnoresCaseAndSortsByName() {
+        assertThat(index.search("CAT")).containsExactly(catIpa, galaxyCat);
+    }
+
+    @Test
+    void testSearchVerifiesCandidates() {
+        // Every trigram of "lley cat g" exists in some name, but no name contains the whole string
+        assertThat(index.search("ley cat g")).isEmpty();
+        assertThat(index.search("ley cat")).containsExactly(catIpa);
+    }
+
+    @Test
+    void testRenameAndRemove() {
+        index.put(crank, "Crank Cat");
+        index.remove(galaxyCat);
+
+        assertThat(index.search("cat")).containsExactly(catIpa, crank);
+        assertThat(index.search("galaxy")).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testCompactionKeepsLiveNames() {
+        for (int i = 0; i < 5000; i++) {
+            UUID id = UUID.randomUUID();
+            index.put(id, "Temporary " + i);
+            index.remove(id);
+        }
+
+        assertThat(index.search("cat")).containsExactly(catIpa, galaxyCat);
+        assertThat(index.search("temporary")).isEmpty();
+    }
+
+    @Test
+    void testEqualNamesOrderByBinaryId() {
+        // UUID.compareTo would put the id with the top bit set first, binary(16) puts it last
+        UUID high = new UUID(0x8000_0000_0000_0000L, 0L);
+        UUID low = new UUID(1L, 0L);
+        index.put(high, "Twin Cat");
+        index.put(low, "Twin Cat");
+
+        assertThat(index.search("twin")).containsExactly(low, high);
+    }
+
+    @Test
+    void testAccentAndCaseInsensitiveCollation() {
+        BeerNameTrigramIndex accentless = new BeerNameTrigramIndex(null, NameCollation.ACCENT_AND_CASE_INSENSITIVE);
+        UUID erable = UUID.randomUUID();
+        UUID eagle = UUID.randomUUID();
+        UUID zebra = UUID.randomUUID();
+        accentless.put(zebra, "Zebra Ale");
+        accentless.put(erable, "Érable Ale");
+        accentless.put(eagle, "eagle ale");
+
+        assertThat(accentless.search("ALE")).containsExactly(eagle, erable, zebra);
+        assertThat(accentless.search("erable")).containsExactly(erable);
+
+        // Code unit order puts upper case first and accented letters last
+        index.put(zebra, "Zebra Ale");
+        index.put(erable, "Érable Ale");
+        index.put(eagle, "eagle ale");
+        assertThat(index.search("ALE")).containsExactly(zebra, eagle, erable);
+        assertThat(index.search("erable")).isEmpty();
+    }
+
+    @Test
+    void testLoadSkipsBeersDeletedWhileReading() {
+        BeerRepository beerRepository = mock(BeerRepository.class);
+        BeerNameTrigramIndex loading = new BeerNameTrigramIndex(beerRepository, NameCollation.BINARY);
+        UUID deleted = UUID.randomUUID();
+        UUID kept = UUID.randomUUID();
+
+        // The delete commits after the chunk was read but before it is indexed
+        given(beerRepository.findBeerNamesAfter(any(), any())).willAnswer(invocation -> {
+            loading.remove(deleted);
+            return List.of(new BeerNameView(deleted, "Ghost Cat"), new BeerNameView(kept, "Kept Cat"));
+        });
+
+        loading.load();
+
+        assertThat(loading.search("cat")).containsExactly(kept);
+        assertThat(loading.size()).isEqualTo(1);
+    }
+}
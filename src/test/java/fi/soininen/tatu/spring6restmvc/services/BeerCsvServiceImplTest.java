@@ -1,13 +1,20 @@
 package fi.soininen.tatu.spring6restmvc.services;
 
+import com.opencsv.exceptions.CsvException;
 import fi.soininen.tatu.spring6restmvc.model.BeerCSVRecord;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.util.ResourceUtils;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class BeerCsvServiceImplTest {
 
@@ -25,4 +32,42 @@ public class BeerCsvServiceImplTest {
         assertThat(recs.size()).isGreaterThan(0);
     }
 
+    @Test
+    void streamCSVMatchesConvertCSV() throws FileNotFoundException {
+
+        File file = ResourceUtils.getFile("classpath:csvdata/beers.csv");
+        List<CsvException> malformed = new ArrayList<>();
+
+        List<BeerCSVRecord> streamed;
+        try (Stream<BeerCSVRecord> records = beerCsvService.streamCSV(file.toPath(), malformed::add)) {
+            streamed = records.toList();
+        }
+
+        assertThat(malformed).isEmpty();
+        assertThat(streamed).extracting(BeerCSVRecord::getId)
+                .containsExactlyElementsOf(beerCsvService.convertCSV(file).stream().map(BeerCSVRecord::getId).toList());
+    }
+
+    @Test
+    void streamCSVReportsMalformedRows(@TempDir Path dir) throws IOException {
+
+        Path file = dir.resolve("beers.csv");
+        Files.writeString(file, """
+                "row","count.x","beer","style"
+                "1",1,"Pub Beer","American Pale Lager"
+                "2",lots,"Devil's Cup","American Pale Ale (APA)"
+                "3",3,"Rise of the Phoenix","American IPA"
+                """);
+
+        List<CsvException> malformed = new ArrayList<>();
+
+        List<BeerCSVRecord> streamed;
+        try (Stream<BeerCSVRecord> records = beerCsvService.streamCSV(file, malformed::add)) {
+            streamed = records.toList();
+        }
+
+        assertThat(streamed).extracting(BeerCSVRecord::getBeer).containsExactly("Pub Beer", "Rise of the Phoenix");
+        assertThat(malformed).hasSize(1);
+        assertThat(malformed.get(0).getLineNumber()).isEqualTo(3);
+    }
 }
@@ -0,0 +1,109 @@
+package fi.soininen.tatu.spring6restmvc.services;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness;
+import fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkTest;
+import fi.soininen.tatu.spring6restmvc.model.BeerCSVRecord;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ResourceUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness.report;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Streams a generated CSV many times larger than the heap, with a malformed row every {@link #BAD_ROW_EVERY} rows.
+ * Run with {@code mvn test -Dtest=BeerCsvStreamingBenchmarkTest -Dbenchmark=true -DargLine=-Xmx64m}; the file
+ * size defaults to 5 GiB and can be changed with {@code -Dcsv.benchmark.bytes=...}.
+ */
+@BenchmarkTest
+class BeerCsvStreamingBenchmarkTest {
+
+    static final long DEFAULT_BYTES = 5L * 1024 * 1024 * 1024;
+    static final int BAD_ROW_EVERY = 100_000;
+
+    BeerCsvService beerCsvService = new BeerCsvServiceImpl();
+
+    @BeforeAll
+    static void quietLogging() {
+        // Without a Spring context logback defaults to DEBUG, and beanutils logs every field conversion
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+    }
+
+    @Test
+    void streamFileLargerThanHeap(@TempDir Path dir) throws Exception {
+        long targetBytes = Long.getLong("csv.benchmark.bytes", DEFAULT_BYTES);
+        Path file = dir.resolve("beers-large.csv");
+        long[] written = generate(file, targetBytes);
+        long rows = written[0];
+        long badRows = written[1];
+
+        AtomicLong malformed = new AtomicLong();
+        long[] peakUsed = {0};
+        long[] parsed = {0};
+
+        double seconds = BenchmarkHarness.seconds(BenchmarkHarness.time(() -> {
+            try (Stream<BeerCSVRecord> records = beerCsvService.streamCSV(file, e -> malformed.incrementAndGet())) {
+                for (var iterator = records.iterator(); iterator.hasNext(); ) {
+                    iterator.next();
+                    if (++parsed[0] % 100_000 == 0) {
+                        Runtime runtime = Runtime.getRuntime();
+                        peakUsed[0] = Math.max(peakUsed[0], runtime.totalMemory() - runtime.freeMemory());
+                    }
+                }
+            }
+        }));
+
+        report("%,d bytes, %,d rows in %.1f s: %,.0f rows/s, %.1f MB/s, peak heap %,d KB of %,d KB max",
+                Files.size(file), parsed[0], seconds, parsed[0] / seconds, Files.size(file) / seconds / (1024 * 1024),
+                peakUsed[0] / 1024, Runtime.getRuntime().maxMemory() / 1024);
+
+        assertThat(parsed[0]).isEqualTo(rows - badRows);
+        assertThat(malformed.get()).isEqualTo(badRows);
+    }
+
+    /**
+     * Writes the bundled data rows over and over, renumbered, until the file reaches {@code targetBytes}.
+     * Returns the number of data rows written and how many of them were malformed.
+     */
+    private long[] generate(Path file, long targetBytes) throws IOException {
+        List<String> lines = Files.readAllLines(ResourceUtils.getFile("classpath:csvdata/beers.csv").toPath(),
+                StandardCharsets.UTF_8);
+        String header = lines.get(0);
+        List<String> data = lines.subList(1, lines.size()).stream()
+                .map(line -> line.substring(line.indexOf(',')))
+                .toList();
+
+        long rows = 0;
+        long badRows = 0;
+        long bytes = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(header);
+            writer.newLine();
+            while (bytes < targetBytes) {
+                for (String rest : data) {
+                    String line = ++rows % BAD_ROW_EVERY == 0 ? "\"x\"" + rest : "\"" + rows + "\"" + rest;
+                    if (rows % BAD_ROW_EVERY == 0) {
+                        badRows++;
+                    }
+                    writer.write(line);
+                    writer.newLine();
+                    bytes += line.length() + 1;
+                }
+            }
+        }
+        return new long[]{rows, badRows};
+    }
+}
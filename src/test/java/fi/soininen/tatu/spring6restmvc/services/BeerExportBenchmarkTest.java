@@ -0,0 +1,137 @@
+package fi.soininen.tatu.spring6restmvc.services;
+
+import fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness;
+import fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkTest;
+import fi.soininen.tatu.spring6restmvc.ids.TimeOrderedUuids;
+import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import fi.soininen.tatu.spring6restmvc.model.ExportFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness.millis;
+import static fi.soininen.tatu.spring6restmvc.benchmark.BenchmarkHarness.report;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exports a small and a large catalog and compares how much live heap each export adds.
+ * Run with {@code mvn test -Dtest=BeerExportBenchmarkTest -Dbenchmark=true -DargLine=-Xmx3g}.
+ */
+@BenchmarkTest
+@DirtiesContext
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:exportbenchmark;LAZY_QUERY_EXECUTION=TRUE")
+class BeerExportBenchmarkTest {
+
+    static final int SMALL = 10_000;
+    static final int LARGE = 1_000_000;
+    static final long SAMPLE_EVERY_BYTES = 4L * 1024 * 1024;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    BeerExportService beerExportService;
+
+    @Test
+    void exportHeapStaysFlat() throws Exception {
+        jdbcTemplate.update("delete from beer_category");
+        jdbcTemplate.update("delete from beer");
+
+        insertBeers(0, SMALL);
+        long smallGrowth = export(ExportFormat.NDJSON, SMALL);
+
+        insertBeers(SMALL, LARGE);
+        long largeGrowth = export(ExportFormat.NDJSON, LARGE);
+        export(ExportFormat.CSV, LARGE);
+
+        // A buffered export would hold every entity and DTO, hundreds of MB at this size
+        assertThat(largeGrowth - smallGrowth).isLessThan(32L * 1024 * 1024);
+    }
+
+    /**
+     * Returns how far the live heap rose above its pre-export level while streaming. The in-memory database
+     * lives in the same heap, so the table itself is part of the baseline.
+     */
+    private long export(ExportFormat format, int expected) throws Exception {
+        HeapSamplingOutputStream out = new HeapSamplingOutputStream();
+        long baseline = HeapSamplingOutputStream.liveHeap();
+
+        BenchmarkHarness.Timed<Long> written = BenchmarkHarness.time(() -> beerExportService.exportBeers(format, out));
+
+        assertThat(written.result()).isEqualTo(expected);
+
+        out.sample();
+        long growth = Math.max(0, out.peakUsed - baseline);
+
+        report("format=%-6s rows=%8d  bytes=%11d  %9.1f ms  heap growth %6.1f MB",
+                format, written.result(), out.bytes, millis(written.elapsed()), growth / 1024.0 / 1024.0);
+
+        return growth;
+    }
+
+    private void insertBeers(int from, int to) {
+        BeerStyle[] styles = BeerStyle.values();
+        List<Object[]> batch = new ArrayList<>();
+
+        for (int i = from; i < to; i++) {
+            byte[] id = TimeOrderedUuids.toBytes(TimeOrderedUuids.next());
+            batch.add(new Object[]{id, "Export Beer " + i, styles[i % styles.length].ordinal(),
+                    BigDecimal.TEN, String.valueOf(i), i % 500});
+
+            if (batch.size() == 10_000) {
+                flush(batch);
+            }
+        }
+        flush(batch);
+    }
+
+    private void flush(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("insert into beer (id, beer_name, beer_style, price, upc, quantity_on_hand, version) " +
+                "values (?, ?, ?, ?, ?, ?, 0)", batch);
+        batch.clear();
+    }
+
+    /**
+     * Discards the export and samples the live heap after a GC every few MB written.
+     */
+    private static class HeapSamplingOutputStream extends OutputStream {
+        long bytes;
+        long nextSample = SAMPLE_EVERY_BYTES;
+        long peakUsed;
+
+        @Override
+        public void write(int b) {
+            count(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count(len);
+        }
+
+        private void count(int len) {
+            bytes += len;
+            if (bytes >= nextSample) {
+                nextSample += SAMPLE_EVERY_BYTES;
+                sample();
+            }
+        }
+
+        void sample() {
+            peakUsed = Math.max(peakUsed, liveHeap());
+        }
+
+        static long liveHeap() {
+            System.gc();
+            Runtime runtime = Runtime.getRuntime();
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+}
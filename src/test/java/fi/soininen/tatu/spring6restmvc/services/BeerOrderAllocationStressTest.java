@@ -0,0 +1,110 @@
+package fi.soininen.tatu.spring6restmvc.services;
+
+import fi.soininen.tatu.spring6restmvc.entities.Beer;
+import fi.soininen.tatu.spring6restmvc.ids.TimeOrderedUuids;
+import fi.soininen.tatu.spring6restmvc.model.BeerOrderCreateDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerOrderLineCreateDto;
+import fi.soininen.tatu.spring6restmvc.model.BeerStyle;
+import fi.soininen.tatu.spring6restmvc.repositories.BeerRepository;
+import fi.soininen.tatu.spring6restmvc.repositories.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many more concurrent orders for one beer than it has stock for: every unit is sold exactly once, the rest are
+ * refused, and no order fails any other way.
+ */
+@SpringBootTest
+class BeerOrderAllocationStressTest {
+
+    static final int STOCK = 100;
+    static final int ORDERS = 300;
+    static final int THREADS = 32;
+    static final String CUSTOMER_REF = "Allocation stress test";
+
+    @Autowired
+    BeerOrderService beerOrderService;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testConcurrentOrdersNeverOversell() throws Exception {
+        UUID customerId = customerRepository.findAll().get(0).getId();
+        Beer beer = beerRepository.saveAndFlush(Beer.builder()
+                .beerName("Limited Release")
+                .beerStyle(BeerStyle.STOUT)
+                .upc("777777")
+                .price(new BigDecimal("15.00"))
+                .quantityOnHand(STOCK)
+                .build());
+
+        BeerOrderCreateDto order = BeerOrderCreateDto.builder()
+                .customerId(customerId)
+                .customerRef(CUSTOMER_REF)
+                .beerOrderLines(List.of(BeerOrderLineCreateDto.builder()
+                        .beerId(beer.getId())
+                        .orderQuantity(1)
+                        .build()))
+                .build();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < ORDERS; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        return beerOrderService.placeOrder(order).isPresent();
+                    } catch (InsufficientInventoryException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int placed = 0;
+            for (Future<Boolean> result : results) {
+                // Any other exception fails the test here
+                if (result.get()) {
+                    placed++;
+                }
+            }
+
+            assertThat(placed).isEqualTo(STOCK);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        try {
+            assertThat(jdbcTemplate.queryForObject("select quantity_on_hand from beer where id = ?", Integer.class,
+                    TimeOrderedUuids.toBytes(beer.getId()))).isZero();
+            assertThat(jdbcTemplate.queryForObject("select sum(quantity_allocated) from beer_order_line where beer_id = ?",
+                    Integer.class, TimeOrderedUuids.toBytes(beer.getId()))).isEqualTo(STOCK);
+        } finally {
+            jdbcTemplate.update("delete from beer_order_line where beer_id = ?", TimeOrderedUuids.toBytes(beer.getId()));
+            jdbcTemplate.update("delete from beer_order where customer_ref = ?", CUSTOMER_REF);
+            beerRepository.deleteById(beer.getId());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package fi.soininen.tatu.spring6restmvc.statements;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Fails the annotated test if any API request it makes through {@code MockMvc} runs more than {@link #value()}
+ * SQL statements. Requests must run on the test thread, so servers on a random port are not covered. When the
+ * test makes no request, the statements of the whole test are checked instead.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@ExtendWith(StatementCountExtension.class)
+public @interface MaxStatementsPerRequest {
+
+    int value();
+}
@@ -0,0 +1,38 @@
+package fi.soininen.tatu.spring6restmvc.statements;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Backs {@link MaxStatementsPerRequest}: an outer {@link StatementCounter} scope around the test collects the
+ * count of every request scope the interceptor opens inside it.
+ */
+class StatementCountExtension implements BeforeEachCallback, AfterEachCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE =
+            ExtensionContext.Namespace.create(StatementCountExtension.class);
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(context.getUniqueId(),
+                StatementCounter.open(context.getDisplayName(), Integer.MAX_VALUE, false));
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        StatementCounter.Scope scope = context.getStore(NAMESPACE)
+                .remove(context.getUniqueId(), StatementCounter.Scope.class);
+        scope.close();
+
+        int max = context.getRequiredTestMethod().getAnnotation(MaxStatementsPerRequest.class).value();
+        if (scope.getMaxInnerCount() < 0) {
+            assertThat(scope.getCount()).as("SQL statements run by the test").isLessThanOrEqualTo(max);
+        } else {
+            assertThat(scope.getMaxInnerCount()).as("SQL statements run by %s", scope.getMaxInnerName())
+                    .isLessThanOrEqualTo(max);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package fi.soininen.tatu.spring6restmvc.statements;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatementCounterTest {
+
+    StatementCountingInspector inspector = new StatementCountingInspector();
+
+    @Test
+    void testStatementsOutsideAnyScopeAreIgnored() {
+        assertThat(inspector.inspect("select 1")).isEqualTo("select 1");
+    }
+
+    @Test
+    void testNestedScopesReportBusiestInnerScope() {
+        try (StatementCounter.Scope outer = StatementCounter.open("test", Integer.MAX_VALUE, false)) {
+            try (StatementCounter.Scope first = StatementCounter.open("GET /a", 5, false)) {
+                inspector.inspect("select 1");
+            }
+            try (StatementCounter.Scope second = StatementCounter.open("GET /b", 1, false)) {
+                inspector.inspect("select 1");
+                inspector.inspect("select 2");
+                assertThat(second.isExceeded()).isTrue();
+            }
+
+            assertThat(outer.getCount()).isEqualTo(3);
+            assertThat(outer.getMaxInnerCount()).isEqualTo(2);
+            assertThat(outer.getMaxInnerName()).isEqualTo("GET /b");
+        }
+    }
+
+    @Test
+    void testRejectingScopeFailsStatementOverBudget() {
+        try (StatementCounter.Scope scope = StatementCounter.open("GET /a", 1, true)) {
+            inspector.inspect("select 1");
+
+            assertThatThrownBy(() -> inspector.inspect("select 2"))
+                    .isInstanceOf(StatementBudgetExceededException.class)
+                    .hasMessageContaining("GET /a")
+                    .hasMessageContaining("select 2");
+        }
+    }
+
+    @Test
+    void testRecordingScopeKeepsStatements() {
+        try (StatementCounter.Scope outer = StatementCounter.open("outer", 10, false)) {
+            try (StatementCounter.Scope recording = StatementCounter.record("recording")) {
+                inspector.inspect("select 1");
+                inspector.inspect("select 2");
+
+                assertThat(recording.getStatements()).containsExactly("select 1", "select 2");
+            }
+
+            assertThat(outer.getCount()).isEqualTo(2);
+            assertThat(outer.getStatements()).isEmpty();
+        }
+    }
+
+    @Test
+    void testClosingOutOfOrderFails() {
+        try (StatementCounter.Scope outer = StatementCounter.open("outer", 1, false)) {
+            StatementCounter.Scope inner = StatementCounter.open("inner", 1, false);
+
+            assertThatThrownBy(outer::close).isInstanceOf(IllegalStateException.class);
+            inner.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+-- The schema V1 to V9 leave behind on MySQL, written for H2. V9 rewrites ids with MySQL-only functions and drops
+-- foreign keys by their InnoDB names, so tests start from its result and let Flyway apply the later migrations.
+-- Flyway runs it on each connection it opens, so every statement is idempotent.
+
+CREATE TABLE IF NOT EXISTS beer (
+    id               BINARY(16)     NOT NULL PRIMARY KEY,
+    beer_name        VARCHAR(50)    NOT NULL,
+    beer_style       SMALLINT       NOT NULL,
+    created_date     DATETIME(6),
+    price            DECIMAL(38, 2) NOT NULL,
+    quantity_on_hand INTEGER,
+    upc              VARCHAR(255)   NOT NULL,
+    updated_date     DATETIME(6),
+    version          INTEGER
+);
+
+CREATE TABLE IF NOT EXISTS customer (
+    id           BINARY(16) NOT NULL PRIMARY KEY,
+    created_date DATETIME(6),
+    name         VARCHAR(255),
+    updated_date DATETIME(6),
+    version      INTEGER,
+    email        VARCHAR(255)
+);
+
+CREATE INDEX IF NOT EXISTS ix_customer_name_id ON customer (name, id);
+CREATE INDEX IF NOT EXISTS ix_customer_email ON customer (email);
+
+CREATE TABLE IF NOT EXISTS category (
+    id           BINARY(16) NOT NULL PRIMARY KEY,
+    description  VARCHAR(50),
+    created_date TIMESTAMP,
+    updated_date DATETIME(6) DEFAULT NULL,
+    version      BIGINT      DEFAULT NULL
+);
+
+CREATE TABLE IF NOT EXISTS beer_category (
+    beer_id     BINARY(16) NOT NULL,
+    category_id BINARY(16) NOT NULL,
+    PRIMARY KEY (beer_id, category_id),
+    CONSTRAINT pc_beer_id_fk FOREIGN KEY (beer_id) REFERENCES beer (id),
+    CONSTRAINT pc_category_id_fk FOREIGN KEY (category_id) REFERENCES category (id)
+);
+
+CREATE TABLE IF NOT EXISTS beer_order (
+    id                     BINARY(16) NOT NULL PRIMARY KEY,
+    created_date           DATETIME(6)  DEFAULT NULL,
+    customer_ref           VARCHAR(255) DEFAULT NULL,
+    last_modified_date     DATETIME(6)  DEFAULT NULL,
+    version                BIGINT       DEFAULT NULL,
+    customer_id            BINARY(16)   DEFAULT NULL,
+    beer_order_shipment_id BINARY(16)   DEFAULT NULL,
+    CONSTRAINT bo_customer_fk FOREIGN KEY (customer_id) REFERENCES customer (id)
+);
+
+CREATE TABLE IF NOT EXISTS beer_order_line (
+    id                 BINARY(16) NOT NULL PRIMARY KEY,
+    beer_id            BINARY(16) DEFAULT NULL,
+    created_date       DATETIME(6) DEFAULT NULL,
+    last_modified_date DATETIME(6) DEFAULT NULL,
+    order_quantity     INT         DEFAULT NULL,
+    quantity_allocated INT         DEFAULT NULL,
+    version            BIGINT      DEFAULT NULL,
+    beer_order_id      BINARY(16)  DEFAULT NULL,
+    CONSTRAINT bol_beer_order_fk FOREIGN KEY (beer_order_id) REFERENCES beer_order (id),
+    CONSTRAINT bol_beer_fk FOREIGN KEY (beer_id) REFERENCES beer (id)
+);
+
+CREATE TABLE IF NOT EXISTS beer_order_shipment (
+    id              BINARY(16) NOT NULL PRIMARY KEY,
+    beer_order_id   BINARY(16) UNIQUE,
+    tracking_number VARCHAR(50),
+    created_date    TIMESTAMP,
+    updated_date    DATETIME(6) DEFAULT NULL,
+    version         BIGINT      DEFAULT NULL,
+    CONSTRAINT bos_pk FOREIGN KEY (beer_order_id) REFERENCES beer_order (id)
+);
+
+ALTER TABLE beer_order
+    ADD CONSTRAINT IF NOT EXISTS bos_shipment_fk FOREIGN KEY (beer_order_shipment_id) REFERENCES beer_order_shipment (id);
+
+CREATE TABLE IF NOT EXISTS data_import (
+    name          VARCHAR(100) NOT NULL PRIMARY KEY,
+    checksum      VARCHAR(64)  NOT NULL,
+    row_count     INTEGER,
+    imported_date DATETIME(6) DEFAULT NULL
+);
+
+CREATE TABLE IF NOT EXISTS replica_heartbeat (
+    id   INTEGER     NOT NULL PRIMARY KEY,
+    beat DATETIME(6) NOT NULL
+);